@@ -0,0 +1,41 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import controller.AnnotationHitTester;
+import model.Annotation;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HitTestBenchmark {
+    @Param({"10", "100", "1000"})
+    public int annotations;
+
+    private final AnnotationHitTester hitTester = new AnnotationHitTester();
+    private SyntheticScene scene;
+
+    @Setup
+    public void setup() {
+        scene = SyntheticScene.create(1600, 1200, 0, 0, annotations, 12);
+    }
+
+    @Benchmark
+    public void containsPointCached(Blackhole blackhole) {
+        for (Annotation annotation : scene.annotations) {
+            blackhole.consume(hitTester.containsPoint(annotation, 800, 600, scene.image.getWidth()));
+        }
+    }
+
+    @Benchmark
+    public void containsPointCold(Blackhole blackhole) {
+        for (Annotation annotation : scene.annotations) {
+            annotation.invalidateBounds();
+            blackhole.consume(hitTester.containsPoint(annotation, 800, 600, scene.image.getWidth()));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package benchmarks;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JPanel;
+import org.openjdk.jmh.annotations.*;
+import model.Stroke;
+import view.PhotoView;
+import view.StrokeRenderer;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+    @Param({"10", "1000"})
+    public int strokes;
+
+    @Param({"10", "500"})
+    public int pointsPerStroke;
+
+    @Param({"0", "100"})
+    public int annotations;
+
+    private final StrokeRenderer strokeRenderer = new StrokeRenderer();
+    private final PhotoView photoView = new PhotoView();
+    private SyntheticScene scene;
+    private BufferedImage canvas;
+    private Graphics2D g2;
+    private JPanel component;
+
+    @Setup
+    public void setup() {
+        scene = SyntheticScene.create(1600, 1200, strokes, pointsPerStroke, annotations, 12);
+        canvas = new BufferedImage(1600, 1200, BufferedImage.TYPE_INT_ARGB_PRE);
+        g2 = canvas.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        component = new JPanel();
+        component.setSize(1600, 1200);
+    }
+
+    @TearDown
+    public void tearDown() {
+        g2.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage drawStrokes() {
+        for (Stroke stroke : scene.strokes) {
+            strokeRenderer.drawStroke(g2, stroke);
+        }
+        return canvas;
+    }
+
+    @Benchmark
+    public BufferedImage drawStrokesBatched() {
+        strokeRenderer.drawStrokes(g2, scene.strokes);
+        return canvas;
+    }
+
+    @Benchmark
+    public BufferedImage drawPhotoView() {
+        photoView.draw(g2, component, false, true, scene.image, scene.strokes, scene.annotations, null, null);
+        return canvas;
+    }
+}
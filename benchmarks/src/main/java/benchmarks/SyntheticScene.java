@@ -0,0 +1,82 @@
+package benchmarks;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import model.Annotation;
+import model.Stroke;
+
+public class SyntheticScene {
+    private static final String[] WORDS = {
+        "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit",
+        "sed", "do", "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore",
+        "magna", "aliqua", "supercalifragilisticexpialidocious"
+    };
+    private static final int STROKES_PER_PEN = 20;
+
+    public final BufferedImage image;
+    public final List<Stroke> strokes;
+    public final List<Annotation> annotations;
+
+    private SyntheticScene(BufferedImage image, List<Stroke> strokes, List<Annotation> annotations) {
+        this.image = image;
+        this.strokes = strokes;
+        this.annotations = annotations;
+    }
+
+    public static SyntheticScene create(int width, int height, int strokeCount, int pointsPerStroke,
+                                        int annotationCount, int wordsPerAnnotation) {
+        Random random = new Random(42);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = image.createGraphics();
+        g2.setPaint(new GradientPaint(0, 0, Color.ORANGE, width, height, Color.BLUE));
+        g2.fillRect(0, 0, width, height);
+        g2.dispose();
+
+        List<Stroke> strokes = new ArrayList<>(strokeCount);
+        Color color = null;
+        int penWidth = 0;
+        for (int i = 0; i < strokeCount; i++) {
+            // Strokes come in runs drawn with the same pen, as they do when someone annotates.
+            if (i % STROKES_PER_PEN == 0) {
+                color = new Color(random.nextInt(0xFFFFFF));
+                penWidth = 1 + random.nextInt(4);
+            }
+            Stroke stroke = new Stroke(color, penWidth);
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            for (int p = 0; p < pointsPerStroke; p++) {
+                x = clamp(x + random.nextInt(9) - 4, width);
+                y = clamp(y + random.nextInt(9) - 4, height);
+                stroke.addPoint(x, y);
+            }
+            strokes.add(stroke);
+        }
+
+        List<Annotation> annotations = new ArrayList<>(annotationCount);
+        for (int i = 0; i < annotationCount; i++) {
+            Annotation annotation = new Annotation(new Point(random.nextInt(width / 2), 12 + random.nextInt(height - 12)));
+            annotation.setText(text(random, wordsPerAnnotation));
+            annotation.setCommitted(true);
+            annotations.add(annotation);
+        }
+        return new SyntheticScene(image, strokes, annotations);
+    }
+
+    public static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    private static int clamp(int value, int limit) {
+        return Math.max(0, Math.min(limit - 1, value));
+    }
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import utils.TextUtils;
+import utils.WordWrapUtils;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextBenchmark {
+    @Param({"8", "64", "512"})
+    public int words;
+
+    @Param({"200", "800"})
+    public int maxWidth;
+
+    private final TextUtils textUtils = new TextUtils();
+    private final WordWrapUtils wordWrapUtils = new WordWrapUtils();
+    private BufferedImage canvas;
+    private Graphics2D g2;
+    private FontMetrics fm;
+    private String text;
+
+    @Setup
+    public void setup() {
+        canvas = new BufferedImage(1024, 1024, BufferedImage.TYPE_INT_ARGB);
+        g2 = canvas.createGraphics();
+        g2.setFont(TextUtils.createBoldFont());
+        fm = g2.getFontMetrics();
+        text = SyntheticScene.text(new Random(7), words);
+    }
+
+    @TearDown
+    public void tearDown() {
+        g2.dispose();
+    }
+
+    @Benchmark
+    public int drawWrappedText() {
+        return wordWrapUtils.drawWrappedText(g2, fm, text, 10, 20, maxWidth);
+    }
+
+    @Benchmark
+    public Rectangle calculateTextBounds() {
+        return textUtils.calculateTextBounds(fm, text, 10, 20, maxWidth);
+    }
+}
@@ -1,11 +1,47 @@
 import javax.swing.*;
 import java.awt.*;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import controller.BatchProcessor;
+import controller.FileChoosers;
+import controller.InputReplayer;
 import controller.PhotoComponent;
 import utils.Constants;
+import utils.FontMetricsService;
+import utils.StartupTimer;
 
 public class Main {
+    private static boolean firstFramePainted;
+
     public static void main(String[] args) {
-        JFrame frame = new JFrame(Constants.WINDOW_TITLE);
+        StartupTimer.shared().mark("main");
+        if (args.length > 0 && BatchProcessor.BATCH_FLAG.equals(args[0])) {
+            System.setProperty("java.awt.headless", "true");
+            System.exit(BatchProcessor.runFromCommandLine(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && InputReplayer.REPLAY_FLAG.equals(args[0])) {
+            System.setProperty("java.awt.headless", "true");
+            System.exit(InputReplayer.runFromCommandLine(Arrays.copyOfRange(args, 1, args.length)));
+        }
+
+        prewarm();
+        SwingUtilities.invokeLater(Main::createAndShowGui);
+    }
+
+    // Swing components are only touched on the event thread.
+    private static void createAndShowGui() {
+        StartupTimer.shared().mark("event thread");
+        JFrame frame = new JFrame(Constants.WINDOW_TITLE) {
+            @Override
+            public void paint(Graphics g) {
+                super.paint(g);
+                onFirstFrame();
+            }
+        };
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         
         PhotoComponent photoController = new PhotoComponent(null);
@@ -17,12 +53,42 @@ public class Main {
 
         frame.setLayout(new BorderLayout());
         frame.add(photoController.createToolBar(), BorderLayout.NORTH);
-        frame.add(scrollPane, BorderLayout.CENTER);
+        frame.add(photoController.createContentPane(scrollPane), BorderLayout.CENTER);
         frame.add(photoController.createStatusBar(), BorderLayout.SOUTH);
         photoController.requestFocusInWindow();
 
         frame.setSize(Constants.WINDOW_WIDTH, Constants.WINDOW_HEIGHT);
         frame.setLocationRelativeTo(null);
+        StartupTimer.shared().mark("ui built");
         frame.setVisible(true);
     }
+
+    // The chooser is left until the window is up so building it never delays the first paint.
+    private static void onFirstFrame() {
+        if (firstFramePainted) {
+            return;
+        }
+        firstFramePainted = true;
+        StartupTimer.shared().firstFrame();
+        FileChoosers.shared().warmAsync(new File(Constants.IMAGE_DIRECTORY));
+    }
+
+    // Plugin registration, the JPEG codec, font metrics and the management server all load lazily
+    // on first use; touching them here moves that cost off the event thread.
+    private static void prewarm() {
+        Thread thread = new Thread(() -> {
+            ImageIO.getReaderFileSuffixes();
+            Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("jpeg");
+            if (readers.hasNext()) {
+                readers.next().dispose();
+            }
+            FontMetricsService fonts = FontMetricsService.shared();
+            fonts.metricsFor(fonts.boldFont());
+            fonts.metricsFor(new Font(Constants.FONT_NAME, Font.PLAIN, Constants.FONT_SIZE));
+            ManagementFactory.getPlatformMBeanServer();
+            StartupTimer.shared().mark("prewarmed");
+        }, "startup-prewarm");
+        thread.setDaemon(true);
+        thread.start();
+    }
 }
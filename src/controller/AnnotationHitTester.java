@@ -1,16 +1,27 @@
 package controller;
 
 import java.awt.*;
-import java.awt.image.BufferedImage;
 import model.Annotation;
+import utils.FontMetricsService;
 import utils.TextUtils;
 
 public class AnnotationHitTester {
     private final TextUtils textRenderer = new TextUtils();
+    private final FontMetricsService.Metrics metrics =
+            FontMetricsService.shared().metricsFor(TextUtils.createBoldFont());
     
     public boolean containsPoint(Annotation annotation, int x, int y, int photoWidth) {
         return containsPointGeneric(annotation, x, y, photoWidth);
     }
+
+    public Rectangle boundsOf(Annotation annotation, int photoWidth) {
+        Rectangle bounds = annotation.getBounds();
+        if (bounds == null) {
+            bounds = calculateBounds(annotation, photoWidth);
+            annotation.setBounds(bounds);
+        }
+        return bounds;
+    }
     
     
     private boolean containsPointGeneric(Object textObject, int x, int y, int photoWidth) {
@@ -38,21 +49,11 @@ public class AnnotationHitTester {
                 return new Rectangle(pos.x, pos.y, 0, 0);
             }
             
-            BufferedImage tempImage = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
-            Graphics2D tempG2 = tempImage.createGraphics();
-            textRenderer.setupFont(tempG2);
-            FontMetrics fm = tempG2.getFontMetrics();
-            
             Point pos = (Point) textObject.getClass().getMethod("getPosition").invoke(textObject);
             String text = (String) textObject.getClass().getMethod("getText").invoke(textObject);
             
             int maxWidth = textRenderer.calculateMaxWidth(photoWidth, pos.x);
-            Rectangle bounds = textRenderer.calculateTextBounds(fm, text, pos.x, pos.y, maxWidth);
-            
-            tempG2.dispose();
-            tempImage.flush();
-            
-            return bounds;
+            return textRenderer.calculateTextBounds(metrics, text, pos.x, pos.y, maxWidth);
         } catch (Exception e) {
             return new Rectangle(0, 0, 0, 0);
         }
@@ -0,0 +1,307 @@
+package controller;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.imageio.ImageIO;
+import model.AnnotationSidecar;
+import view.FlattenedExporter;
+import view.PhotoView;
+
+public class BatchProcessor {
+    public static final String BATCH_FLAG = "--batch";
+    private static final BatchItem END_OF_STREAM = new BatchItem(null);
+
+    private final File outputDirectory;
+    private final String format;
+    private final int threadsPerStage;
+    private final int queueCapacity;
+    private final PhotoView view = new PhotoView();
+
+    private final Stage decodeStage = new Stage("decode");
+    private final Stage renderStage = new Stage("render");
+    private final Stage encodeStage = new Stage("encode");
+    private final LongAdder failures = new LongAdder();
+    private PrintStream log = System.out;
+
+    public BatchProcessor(File outputDirectory, String format, int threadsPerStage, int queueCapacity) {
+        this.outputDirectory = outputDirectory;
+        this.format = format;
+        this.threadsPerStage = Math.max(1, threadsPerStage);
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    public static int runFromCommandLine(String[] args) {
+        File outputDirectory = new File("annotated");
+        String format = "png";
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> inputs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-o":
+                        outputDirectory = new File(args[++i]);
+                        break;
+                    case "-f":
+                        format = args[++i].toLowerCase(Locale.ROOT);
+                        break;
+                    case "-j":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        inputs.add(args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            inputs.clear();
+        }
+        if (inputs.isEmpty() || !(format.equals("png") || format.equals("jpg") || format.equals("jpeg"))) {
+            System.err.println("usage: Main " + BATCH_FLAG + " [-o outDir] [-f png|jpg] [-j threads] <dir|file|@list>...");
+            return 2;
+        }
+        try {
+            List<File> files = collectInputs(inputs);
+            BatchProcessor processor = new BatchProcessor(outputDirectory, format, threads, threads);
+            return processor.process(files) == 0 ? 0 : 1;
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Batch failed: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    public static List<File> collectInputs(List<String> inputs) throws IOException {
+        Set<String> suffixes = new HashSet<>();
+        for (String suffix : ImageIO.getReaderFileSuffixes()) {
+            suffixes.add(suffix.toLowerCase(Locale.ROOT));
+        }
+        List<File> files = new ArrayList<>();
+        for (String input : inputs) {
+            if (input.startsWith("@")) {
+                for (String line : Files.readAllLines(new File(input.substring(1)).toPath(), StandardCharsets.UTF_8)) {
+                    if (!line.isBlank()) {
+                        files.add(new File(line.trim()));
+                    }
+                }
+                continue;
+            }
+            File file = new File(input);
+            if (file.isDirectory()) {
+                File[] children = file.listFiles();
+                if (children == null) {
+                    throw new IOException("Cannot list " + file);
+                }
+                Arrays.sort(children);
+                for (File child : children) {
+                    String name = child.getName();
+                    int dot = name.lastIndexOf('.');
+                    if (child.isFile() && dot > 0 && suffixes.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT))) {
+                        files.add(child);
+                    }
+                }
+            } else {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    public void setLog(PrintStream log) {
+        this.log = log;
+    }
+
+    public int process(List<File> files) throws IOException, InterruptedException {
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("Cannot create " + outputDirectory);
+        }
+        BlockingQueue<BatchItem> pending = new LinkedBlockingQueue<>();
+        BlockingQueue<BatchItem> decoded = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<BatchItem> rendered = new ArrayBlockingQueue<>(queueCapacity);
+        for (File file : files) {
+            pending.add(new BatchItem(file));
+        }
+        for (int i = 0; i < threadsPerStage; i++) {
+            pending.add(END_OF_STREAM);
+        }
+
+        long start = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(threadsPerStage * 3);
+        AtomicInteger decoders = new AtomicInteger(threadsPerStage);
+        AtomicInteger renderers = new AtomicInteger(threadsPerStage);
+        for (int i = 0; i < threadsPerStage; i++) {
+            workers.execute(() -> runStage(decodeStage, pending, decoded, decoders, this::decode));
+            workers.execute(() -> runStage(renderStage, decoded, rendered, renderers, this::render));
+            workers.execute(() -> runStage(encodeStage, rendered, null, null, this::encode));
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        report(System.nanoTime() - start);
+        return failures.intValue();
+    }
+
+    private void runStage(Stage stage, BlockingQueue<BatchItem> input, BlockingQueue<BatchItem> output,
+                          AtomicInteger activeWorkers, StageWork work) {
+        try {
+            while (true) {
+                BatchItem item = input.take();
+                if (item == END_OF_STREAM) {
+                    break;
+                }
+                long start = System.nanoTime();
+                try {
+                    work.apply(item);
+                } catch (Throwable e) {
+                    // Errors such as running out of memory on a huge photo fail that photo only.
+                    item.image = null;
+                    item.sidecar = null;
+                    failures.increment();
+                    log.println("Failed " + item.source + " (" + stage.name + "): " + e);
+                    continue;
+                }
+                stage.record(System.nanoTime() - start);
+                if (output != null) {
+                    output.put(item);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // The last worker of a stage to finish forwards one end marker per downstream worker,
+            // however it finished, so the next stage never waits forever.
+            if (output != null && activeWorkers.decrementAndGet() == 0) {
+                forwardEndOfStream(output);
+            }
+        }
+    }
+
+    private void forwardEndOfStream(BlockingQueue<BatchItem> output) {
+        try {
+            for (int i = 0; i < threadsPerStage; i++) {
+                output.put(END_OF_STREAM);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void decode(BatchItem item) throws IOException {
+        BufferedImage image = ImageIO.read(item.source);
+        if (image == null) {
+            throw new IOException("unsupported image format");
+        }
+        item.image = image;
+        item.sidecar = AnnotationSidecar.readFor(item.source);
+    }
+
+    private void render(BatchItem item) {
+        if (item.sidecar.isEmpty()) {
+            return;
+        }
+        BufferedImage image = item.image;
+        int type = image.getType();
+        if (type != BufferedImage.TYPE_INT_RGB && type != BufferedImage.TYPE_INT_ARGB
+                && type != BufferedImage.TYPE_3BYTE_BGR && type != BufferedImage.TYPE_4BYTE_ABGR) {
+            BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(),
+                    image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2 = converted.createGraphics();
+            g2.drawImage(image, 0, 0, null);
+            g2.dispose();
+            image.flush();
+            image = converted;
+        }
+        Graphics2D g2 = image.createGraphics();
+        try {
+            view.drawAnnotationLayers(g2, image, item.sidecar.getStrokes(), item.sidecar.getAnnotations());
+        } finally {
+            g2.dispose();
+        }
+        item.image = image;
+        item.sidecar = null;
+    }
+
+    private void encode(BatchItem item) throws IOException {
+        BufferedImage image = item.image;
+        item.image = null;
+        String extension = format.equals("jpeg") ? "jpg" : format;
+        if (!extension.equals("png") && image.getColorModel().hasAlpha()) {
+            BufferedImage opaque = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2 = opaque.createGraphics();
+            g2.drawImage(image, 0, 0, Color.WHITE, null);
+            g2.dispose();
+            image = opaque;
+        }
+        File target = new File(outputDirectory, baseName(item.source) + "." + extension);
+        if (!ImageIO.write(image, FlattenedExporter.formatOf(target), target)) {
+            throw new IOException("no writer for " + extension);
+        }
+    }
+
+    private static String baseName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private void report(long elapsedNanos) {
+        long completed = encodeStage.count.sum();
+        double seconds = elapsedNanos / 1e9;
+        log.printf(Locale.ROOT, "Processed %d images (%d failed) in %.2f s: %.2f images/s%n",
+                completed, failures.sum(), seconds, seconds > 0 ? completed / seconds : 0.0);
+        for (Stage stage : new Stage[] {decodeStage, renderStage, encodeStage}) {
+            log.println(stage.summary());
+        }
+    }
+
+    private interface StageWork {
+        void apply(BatchItem item) throws Exception;
+    }
+
+    private static class BatchItem {
+        final File source;
+        BufferedImage image;
+        AnnotationSidecar sidecar;
+
+        BatchItem(File source) {
+            this.source = source;
+        }
+    }
+
+    private static class Stage {
+        final String name;
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+        }
+
+        String summary() {
+            long n = count.sum();
+            double totalMillis = totalNanos.sum() / 1e6;
+            return String.format(Locale.ROOT, "  %-6s %6d images, %10.1f ms total, %8.2f ms/image",
+                    name, n, totalMillis, n > 0 ? totalMillis / n : 0.0);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package controller;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.swing.JComponent;
+import javax.swing.JFileChooser;
+import javax.swing.SwingUtilities;
+import javax.swing.filechooser.FileSystemView;
+import utils.StartupTimer;
+
+// One chooser is built once and reused by every dialog; constructing a fresh one costs a
+// FileSystemView walk and UI setup each time.
+public class FileChoosers {
+    private static final FileChoosers SHARED = new FileChoosers();
+
+    private final ExecutorService lister = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "directory-lister");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private JFileChooser chooser;
+    private File initialDirectory;
+
+    public static FileChoosers shared() {
+        return SHARED;
+    }
+
+    // Lists the starting directory and touches the file system view in the background, then builds
+    // the chooser on the event thread so the first dialog opens warm. Called on the event thread.
+    public void warmAsync(File startDirectory) {
+        initialDirectory = startDirectory;
+        lister.execute(() -> {
+            FileSystemView fileSystem = FileSystemView.getFileSystemView();
+            fileSystem.getRoots();
+            File directory = startDirectory.isDirectory() ? startDirectory : fileSystem.getDefaultDirectory();
+            directory.listFiles();
+            SwingUtilities.invokeLater(() -> {
+                if (chooser == null) {
+                    chooser();
+                    StartupTimer.shared().mark("file chooser");
+                }
+            });
+        });
+    }
+
+    // Dialog state from the previous use is cleared; the current directory is kept.
+    public JFileChooser chooser(String title, int selectionMode, JComponent accessory) {
+        JFileChooser fileChooser = chooser();
+        fileChooser.setDialogTitle(title);
+        fileChooser.setFileSelectionMode(selectionMode);
+        fileChooser.setAccessory(accessory);
+        fileChooser.resetChoosableFileFilters();
+        fileChooser.setSelectedFile(null);
+        return fileChooser;
+    }
+
+    private JFileChooser chooser() {
+        if (chooser == null) {
+            // The directory model lists entries on its own loader thread, so large folders fill in
+            // after the dialog appears.
+            chooser = new JFileChooser(initialDirectory != null && initialDirectory.isDirectory()
+                    ? initialDirectory : null);
+        }
+        return chooser;
+    }
+}
@@ -0,0 +1,107 @@
+package controller;
+
+import java.awt.AWTEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+public class InputRecorder implements Closeable {
+    static final int MAGIC = 0x50565452;
+    static final int VERSION = 1;
+    static final int MOUSE_RECORD = 0;
+    static final int KEY_RECORD = 1;
+
+    private final DataOutputStream out;
+    private long lastNanos;
+    private int lastX;
+    private int lastY;
+    private int eventCount;
+    private IOException failure;
+
+    public InputRecorder(File file, int width, int height, File imageFile) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeUTF(imageFile != null ? imageFile.getPath() : "");
+        this.lastNanos = System.nanoTime();
+    }
+
+    public void record(AWTEvent event) {
+        if (failure != null) {
+            return;
+        }
+        long now = System.nanoTime();
+        try {
+            if (event instanceof MouseEvent) {
+                MouseEvent e = (MouseEvent) event;
+                out.writeByte(MOUSE_RECORD);
+                writeHeader(e.getID(), now);
+                writeVarInt(out, zigZag(e.getX() - lastX));
+                writeVarInt(out, zigZag(e.getY() - lastY));
+                writeVarInt(out, e.getModifiersEx());
+                writeVarInt(out, e.getButton());
+                writeVarInt(out, e.getClickCount());
+                lastX = e.getX();
+                lastY = e.getY();
+            } else if (event instanceof KeyEvent) {
+                KeyEvent e = (KeyEvent) event;
+                out.writeByte(KEY_RECORD);
+                writeHeader(e.getID(), now);
+                writeVarInt(out, e.getModifiersEx());
+                writeVarInt(out, e.getKeyCode());
+                writeVarInt(out, e.getKeyChar());
+                writeVarInt(out, e.getKeyLocation());
+            } else {
+                return;
+            }
+            lastNanos = now;
+            eventCount++;
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    private void writeHeader(int id, long now) throws IOException {
+        writeVarInt(out, id);
+        writeVarLong(out, (now - lastNanos) / 1000);
+    }
+
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
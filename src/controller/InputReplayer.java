@@ -0,0 +1,258 @@
+package controller;
+
+import java.awt.AWTEvent;
+import java.awt.Graphics2D;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import model.LibraryIndex;
+import model.TagStore;
+import utils.LatencyHistogram;
+
+public class InputReplayer {
+    public static final String REPLAY_FLAG = "--replay";
+
+    private final File traceFile;
+    private final List<RecordedEvent> events = new ArrayList<>();
+    private int width;
+    private int height;
+    private String imagePath;
+
+    private final LatencyHistogram handlingTimes = new LatencyHistogram(Long.MAX_VALUE);
+    private final LatencyHistogram paintTimes = new LatencyHistogram(Long.MAX_VALUE);
+
+    public InputReplayer(File traceFile) throws IOException {
+        this.traceFile = traceFile;
+        read();
+    }
+
+    public static int runFromCommandLine(String[] args) {
+        File trace = null;
+        File image = null;
+        boolean maxSpeed = false;
+        double maxP99Millis = -1;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--max-speed":
+                        maxSpeed = true;
+                        break;
+                    case "--image":
+                        image = new File(args[++i]);
+                        break;
+                    case "--max-p99-ms":
+                        maxP99Millis = Double.parseDouble(args[++i]);
+                        break;
+                    default:
+                        trace = new File(args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            trace = null;
+        }
+        if (trace == null) {
+            System.err.println("usage: Main " + REPLAY_FLAG + " [--max-speed] [--image file] [--max-p99-ms n] <trace>");
+            return 2;
+        }
+        try {
+            InputReplayer replayer = new InputReplayer(trace);
+            replayer.replay(image, maxSpeed);
+            replayer.report(System.out);
+            if (maxP99Millis >= 0 && replayer.worstP99Millis() > maxP99Millis) {
+                System.out.printf(Locale.ROOT, "FAILED: p99 %.2f ms exceeds budget of %.2f ms%n",
+                        replayer.worstP99Millis(), maxP99Millis);
+                return 1;
+            }
+            return 0;
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Replay failed: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private void read() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(traceFile)))) {
+            if (in.readInt() != InputRecorder.MAGIC || in.readShort() != InputRecorder.VERSION) {
+                throw new IOException(traceFile + " is not a version " + InputRecorder.VERSION + " input trace");
+            }
+            width = in.readInt();
+            height = in.readInt();
+            imagePath = in.readUTF();
+            int x = 0;
+            int y = 0;
+            while (true) {
+                int kind = in.read();
+                if (kind < 0) {
+                    break;
+                }
+                RecordedEvent event = new RecordedEvent();
+                event.kind = kind;
+                event.id = readVarInt(in);
+                event.delayMicros = readVarLong(in);
+                if (kind == InputRecorder.MOUSE_RECORD) {
+                    x += InputRecorder.unZigZag(readVarInt(in));
+                    y += InputRecorder.unZigZag(readVarInt(in));
+                    event.x = x;
+                    event.y = y;
+                    event.modifiers = readVarInt(in);
+                    event.button = readVarInt(in);
+                    event.clickCount = readVarInt(in);
+                } else if (kind == InputRecorder.KEY_RECORD) {
+                    event.modifiers = readVarInt(in);
+                    event.keyCode = readVarInt(in);
+                    event.keyChar = (char) readVarInt(in);
+                    event.keyLocation = readVarInt(in);
+                } else {
+                    throw new IOException("Corrupt trace record in " + traceFile);
+                }
+                events.add(event);
+            }
+        }
+    }
+
+    // Everything that touches the component runs on the event thread, as it would in the app;
+    // only the pacing sleeps happen on the calling thread.
+    public void replay(File imageOverride, boolean maxSpeed) throws IOException, InterruptedException {
+        File home = Files.createTempDirectory("photoviewer-replay").toFile();
+        try {
+            replay(home, imageOverride, maxSpeed);
+        } finally {
+            File[] files = home.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            home.delete();
+        }
+    }
+
+    private void replay(File home, File imageOverride, boolean maxSpeed) throws InterruptedException {
+        File image = imageOverride != null ? imageOverride : (imagePath.isEmpty() ? null : new File(imagePath));
+        PhotoComponent[] created = new PhotoComponent[1];
+        onEventThread(() -> {
+            PhotoComponent component = new PhotoComponent(new TagStore(new File(home, TagStore.FILE_NAME)),
+                    new LibraryIndex(new File(home, LibraryIndex.FILE_NAME)));
+            if (image != null && image.isFile()) {
+                component.loadImageAndWait(image);
+            }
+            component.setSize(width, height);
+            created[0] = component;
+        });
+        PhotoComponent component = created[0];
+        BufferedImage surface = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_ARGB);
+
+        long start = System.nanoTime();
+        long dueMicros = 0;
+        for (RecordedEvent recorded : events) {
+            dueMicros += recorded.delayMicros;
+            if (!maxSpeed) {
+                long waitNanos = start + TimeUnit.MICROSECONDS.toNanos(dueMicros) - System.nanoTime();
+                if (waitNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                }
+            }
+            onEventThread(() -> dispatch(component, recorded, surface));
+        }
+    }
+
+    private void dispatch(PhotoComponent component, RecordedEvent recorded, BufferedImage surface) {
+        AWTEvent event = recorded.toEvent(component);
+        long repaintsBefore = component.getPaintMetrics().getRepaintsRequested();
+        long handleStart = System.nanoTime();
+        if (event instanceof KeyEvent) {
+            // Headless components never own the keyboard focus, so key events bypass focus dispatch.
+            component.processKeyEvent((KeyEvent) event);
+        } else {
+            component.dispatchEvent(event);
+        }
+        handlingTimes.record(System.nanoTime() - handleStart);
+
+        if (component.getPaintMetrics().getRepaintsRequested() != repaintsBefore) {
+            Graphics2D g2 = surface.createGraphics();
+            long paintStart = System.nanoTime();
+            component.paint(g2);
+            paintTimes.record(System.nanoTime() - paintStart);
+            g2.dispose();
+        }
+    }
+
+    private static void onEventThread(Runnable task) throws InterruptedException {
+        try {
+            SwingUtilities.invokeAndWait(task);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Replay failed on the event thread", e.getCause());
+        }
+    }
+
+    public double worstP99Millis() {
+        return Math.max(handlingTimes.percentile(0.99), paintTimes.percentile(0.99)) / 1e6;
+    }
+
+    public void report(PrintStream out) {
+        out.printf(Locale.ROOT, "Replayed %d events from %s%n", events.size(), traceFile);
+        out.println(summary("handling", handlingTimes));
+        out.println(summary("paint", paintTimes));
+    }
+
+    private static String summary(String name, LatencyHistogram histogram) {
+        return String.format(Locale.ROOT, "  %-8s %6d samples  p50 %7.3f  p99 %7.3f  max %7.3f ms",
+                name, histogram.count(), histogram.percentile(0.50) / 1e6,
+                histogram.percentile(0.99) / 1e6, histogram.max() / 1e6);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        return (int) readVarLong(in);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated trace record");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in trace");
+    }
+
+    private static class RecordedEvent {
+        int kind;
+        int id;
+        long delayMicros;
+        int x;
+        int y;
+        int modifiers;
+        int button;
+        int clickCount;
+        int keyCode;
+        char keyChar;
+        int keyLocation;
+
+        AWTEvent toEvent(PhotoComponent component) {
+            long when = System.currentTimeMillis();
+            if (kind == InputRecorder.MOUSE_RECORD) {
+                return new MouseEvent(component, id, when, modifiers, x, y, clickCount, false, button);
+            }
+            return new KeyEvent(component, id, when, modifiers, keyCode, keyChar, keyLocation);
+        }
+    }
+}
@@ -3,18 +3,50 @@ package controller;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import javax.imageio.ImageIO;
+import interfaces.IAnnotation;
 import interfaces.IPhotoModel;
+import interfaces.IStroke;
 import model.PhotoModel;
+import model.PixelCache;
 import model.Stroke;
 import model.Annotation;
+import model.Eraser;
+import model.LibraryIndex;
+import model.TagStore;
+import model.Workspace;
+import view.FlattenedExporter;
+import view.RenderSnapshot;
+import view.VectorExporter;
 import view.PhotoView;
+import view.Tool;
 import utils.Constants;
+import utils.Histogram;
+import utils.ImageAdjuster;
+import utils.ImageAdjustments;
+import utils.ImageStatistics;
+import utils.ImageProbe;
+import utils.RasterTransform;
+import utils.RasterTransformer;
+import utils.PaintMetrics;
 
 public class PhotoComponent extends PACController {
-    private final IPhotoModel model;  
+    private IPhotoModel model;  
+    private final Workspace workspace;
+    private final Set<IPhotoModel> decoding = new HashSet<>();
     private final PhotoView view;    
     private Stroke currentStroke;  
     private boolean isDrawing;     
@@ -22,18 +54,107 @@ public class PhotoComponent extends PACController {
     private boolean mouseMoved;
     
     private final AnnotationHitTester annotationHitTester = new AnnotationHitTester();
+    private final PaintMetrics paintMetrics;
+    private final Timer hudTimer;
+    private boolean hudVisible;
+    private InputRecorder inputRecorder;
+    private final TagStore tagStore;
+    private final LibraryIndex libraryIndex;
+    private boolean browseMode;
+    private Tool tool = Tool.DRAW;
+    private Point groupDragPoint;
+    private Point rubberBandStart;
+    private Shape rubberBand;
+    private Eraser eraser;
+    private final ImageAdjuster imageAdjuster = new ImageAdjuster();
+    private final RasterTransformer rasterTransformer = new RasterTransformer();
+    private final Map<IPhotoModel, ImageAdjustments> pendingAdjustments = new HashMap<>();
+    private final ImageStatistics imageStatistics = new ImageStatistics();
+    private final Map<IPhotoModel, Integer> pendingHistograms = new HashMap<>();
+    private BufferedImage previewOriginal;
+    private BufferedImage previewSource;
+    private BufferedImage adjustmentPreview;
+    private boolean adjustingSlider;
+    private Shape eraserCursor;
+    private int[] browseResults = new int[0];
 
     public PhotoComponent(String imagePath) {
+        this(TagStore.shared(), LibraryIndex.shared());
+    }
+
+    // Replays pass stores of their own so a run never reads or rewrites the user's library.
+    PhotoComponent(TagStore tagStore, LibraryIndex libraryIndex) {
         this.model = new PhotoModel();
         this.view = new PhotoView(); 
+        this.workspace = new Workspace(Constants.MAX_DECODED_DOCUMENTS);
+        workspace.add(model);
+        workspace.activate(0);
+        view.addDocumentTab(Constants.UNTITLED_DOCUMENT);
+        this.paintMetrics = PaintMetrics.shared();
+        this.tagStore = tagStore;
+        this.libraryIndex = libraryIndex;
+        this.hudTimer = new Timer(Constants.HUD_REFRESH_MILLIS, e -> repaint(getVisibleRect()));
+        view.setPaintMetrics(paintMetrics);
         setupEventHandlers();
         setupViewEventListeners();
+        setupLibrary();
+    }
+
+    private void setupLibrary() {
+        libraryIndex.addListener(result -> SwingUtilities.invokeLater(() -> onLibraryScanned(result)));
+        libraryIndex.rescanAsync();
+        if (Boolean.getBoolean(LibraryIndex.WATCH_PROPERTY)) {
+            try {
+                libraryIndex.startWatching();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void onLibraryScanned(LibraryIndex.ScanResult result) {
+        for (String path : result.added) {
+            tagStore.idFor(new File(path));
+        }
+        for (String path : result.removed) {
+            tagStore.retire(new File(path));
+        }
+        if (!result.isEmpty()) {
+            updateStatusBar(String.format(Locale.ROOT, "Library: %d photos (+%d, -%d in %.0f ms)",
+                    libraryIndex.size(), result.added.size(), result.removed.size(), result.elapsedNanos / 1e6));
+        }
+        refreshBrowseResults();
+    }
+
+    public void addLibraryFolder() {
+        JFileChooser fileChooser = FileChoosers.shared().chooser("Add Library Folder",
+                JFileChooser.DIRECTORIES_ONLY, null);
+        if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            libraryIndex.addRoot(fileChooser.getSelectedFile());
+            updateStatusBar("Scanning " + fileChooser.getSelectedFile().getName() + "...");
+        }
     }
     
     private void setupViewEventListeners() {
         view.setImportActionListener(e -> importImage());
+        view.setSaveActionListener(e -> saveAnnotations());
+        view.setLibraryActionListener(e -> addLibraryFolder());
+        view.setExportActionListener(e -> exportImage());
         view.setDeleteActionListener(e -> deletePhoto());
+        view.setCloseActionListener(e -> closeDocument());
+        view.setDocumentSelectionListener(this::activateDocument);
         view.setColorActionListener(e -> showColorChooser());
+        view.setToolListener(this::setTool);
+        view.setAdjustmentListener(this::adjustImage);
+        view.setTransformListener(this::transformImage);
+        view.setAutoLevelsActionListener(e -> autoLevels());
+        view.setHudActionListener(e -> setHudVisible(((AbstractButton) e.getSource()).isSelected()));
+        view.setRecordActionListener(e -> toggleRecording((AbstractButton) e.getSource()));
+        view.setPhotoModeActionListener(e -> setBrowseMode(false));
+        view.setBrowseModeActionListener(e -> setBrowseMode(true));
+        view.setCategoryListener(this::onCategoryToggled);
+        view.getBrowseView().setMatchActionListener(e -> refreshBrowseResults());
+        view.getBrowseView().setOpenListener(this::openBrowseResult);
         view.setStatusUpdateListener(message -> updateStatusBar(message));
     }
     
@@ -71,6 +192,139 @@ public class PhotoComponent extends PACController {
         return null;
     }
 
+    private void onCategoryToggled(String category, boolean selected) {
+        if (browseMode) {
+            refreshBrowseResults();
+            return;
+        }
+        File imageFile = model.getImageFile();
+        if (imageFile == null) {
+            view.setCategorySelection(Collections.emptySet());
+            updateStatusBar("Import a photo to tag it as " + category);
+            return;
+        }
+        tagStore.setTag(tagStore.idFor(imageFile), category, selected);
+        updateStatusBar((selected ? "Tagged " : "Untagged ") + imageFile.getName() + " as " + category);
+    }
+
+    private void syncCategorySelection() {
+        File imageFile = model.getImageFile();
+        if (imageFile == null) {
+            view.setCategorySelection(Collections.emptySet());
+        } else {
+            view.setCategorySelection(tagStore.tagsOf(tagStore.idFor(imageFile)));
+        }
+    }
+
+    private void setBrowseMode(boolean browse) {
+        browseMode = browse;
+        if (browse) {
+            view.setCategorySelection(Collections.emptySet());
+            refreshBrowseResults();
+        } else {
+            syncCategorySelection();
+        }
+    }
+
+    private void refreshBrowseResults() {
+        if (!browseMode) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<String> selected = view.getSelectedCategories();
+        TagStore.Match match = TagStore.Match.values()[view.getBrowseView().getMatchMode()];
+        int[] ids = tagStore.query(selected, match).toArray();
+        browseResults = ids;
+        double millis = (System.nanoTime() - start) / 1e6;
+        view.getBrowseView().showResults(new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return describe(tagStore.pathOf(ids[index]));
+            }
+
+            @Override
+            public int size() {
+                return ids.length;
+            }
+        }, String.format(Locale.ROOT, "%d of %d photos (%.2f ms)", ids.length, tagStore.size(), millis));
+    }
+
+    private String describe(String path) {
+        LibraryIndex.Entry entry = libraryIndex.get(path);
+        if (entry == null || entry.width < 0) {
+            return path;
+        }
+        return path + "  (" + entry.width + " x " + entry.height + " " + entry.format.toUpperCase(Locale.ROOT) + ")";
+    }
+
+    private void openBrowseResult(int index) {
+        if (index < 0 || index >= browseResults.length) {
+            return;
+        }
+        File file = new File(tagStore.pathOf(browseResults[index]));
+        view.showPhotoMode();
+        browseMode = false;
+        loadImage(file);
+    }
+
+    public JPanel createContentPane(JComponent photoPane) {
+        return view.createContentPane(photoPane);
+    }
+
+    public void setHudVisible(boolean visible) {
+        hudVisible = visible;
+        if (visible) {
+            hudTimer.start();
+        } else {
+            hudTimer.stop();
+        }
+        repaint();
+    }
+
+    private void toggleRecording(AbstractButton source) {
+        if (inputRecorder != null) {
+            stopRecording();
+            source.setSelected(false);
+            return;
+        }
+        JFileChooser fileChooser = FileChoosers.shared().chooser("Record Input Trace",
+                JFileChooser.FILES_ONLY, null);
+        fileChooser.setSelectedFile(new File("session.trace"));
+        if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+            startRecording(fileChooser.getSelectedFile());
+        }
+        source.setSelected(inputRecorder != null);
+    }
+
+    public void startRecording(File traceFile) {
+        try {
+            Dimension size = getSize();
+            inputRecorder = new InputRecorder(traceFile, size.width, size.height, model.getImageFile());
+            updateStatusBar("Recording input to " + traceFile.getName());
+        } catch (IOException e) {
+            e.printStackTrace();
+            updateStatusBar("Cannot record input: " + e.getMessage());
+        }
+    }
+
+    public void stopRecording() {
+        if (inputRecorder == null) {
+            return;
+        }
+        try {
+            inputRecorder.close();
+            updateStatusBar("Recorded " + inputRecorder.getEventCount() + " input events");
+        } catch (IOException e) {
+            e.printStackTrace();
+            updateStatusBar("Input recording failed: " + e.getMessage());
+        }
+        inputRecorder = null;
+    }
+
+    public PaintMetrics getPaintMetrics() {
+        return paintMetrics;
+    }
+
     public void toggleFlip() {
         model.toggleFlipped();
         refreshView();
@@ -81,7 +335,179 @@ public class PhotoComponent extends PACController {
         refreshView();
     }
     
+    public void setTool(Tool tool) {
+        this.tool = tool;
+    }
+
+    // Drags are previewed on a viewport-sized copy; the full-resolution pass runs once on release.
+    public void adjustImage(ImageAdjustments adjustments, boolean adjusting) {
+        model.setAdjustments(adjustments);
+        adjustingSlider = adjusting;
+        BufferedImage image = model.getImage();
+        if (image != null && !adjustments.isIdentity()) {
+            adjustmentPreview = imageAdjuster.apply(previewSourceFor(image), adjustments);
+        } else {
+            adjustmentPreview = null;
+        }
+        if (!adjusting) {
+            ensureAdjustedImage();
+        }
+        refreshHistogram();
+        repaint();
+    }
+
+    public void autoLevels() {
+        if (model.getImage() == null) {
+            updateStatusBar("No photo to adjust");
+            return;
+        }
+        refreshHistogram();
+        ImageAdjustments current = model.getAdjustments();
+        ImageAdjustments leveled = model.getHistogram().autoLevels(current, Constants.AUTO_LEVELS_CLIP);
+        if (leveled.equals(current)) {
+            updateStatusBar("Levels already span the full range");
+            return;
+        }
+        view.setAdjustments(leveled);
+        adjustImage(leveled, false);
+        updateStatusBar("Auto levels: black " + leveled.getBlack() + ", white " + leveled.getWhite());
+    }
+
+    // A sampled histogram is shown at once and the exact count follows in the background. Both are
+    // cached on the document for its image version, so adjustments only remap the cached bins.
+    private void refreshHistogram() {
+        IPhotoModel document = model;
+        BufferedImage image = document.getImage();
+        if (image == null) {
+            view.setHistogram(null);
+            return;
+        }
+        int imageVersion = document.getImageVersion();
+        Histogram histogram = document.getHistogram();
+        if (histogram == null) {
+            histogram = imageStatistics.sample(image);
+            document.completeHistogram(imageVersion, histogram);
+        }
+        if (!histogram.isExact() && !Integer.valueOf(imageVersion).equals(pendingHistograms.get(document))) {
+            pendingHistograms.put(document, imageVersion);
+            new SwingWorker<Histogram, Void>() {
+                @Override
+                protected Histogram doInBackground() {
+                    return imageStatistics.compute(image);
+                }
+
+                @Override
+                protected void done() {
+                    pendingHistograms.remove(document, imageVersion);
+                    try {
+                        document.completeHistogram(imageVersion, get());
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                    if (document == model && document.getHistogram() != null) {
+                        showHistogram(document.getHistogram());
+                    }
+                }
+            }.execute();
+        }
+        showHistogram(histogram);
+    }
+
+    private void showHistogram(Histogram histogram) {
+        ImageAdjustments adjustments = model.getAdjustments();
+        view.setHistogram(adjustments.isIdentity() ? histogram : histogram.mapped(adjustments.lookupTable()));
+    }
+
+    public void transformImage(RasterTransform transform) {
+        BufferedImage image = model.getImage();
+        if (image == null) {
+            updateStatusBar("No photo to transform");
+            return;
+        }
+        model.commitCurrentText();
+        resetControllerState();
+        long start = System.nanoTime();
+        BufferedImage adjusted = model.getAdjustments().isIdentity() ? null : model.getAdjustedImage();
+        BufferedImage transformed = rasterTransformer.apply(image, transform);
+        BufferedImage transformedAdjusted = adjusted != null ? rasterTransformer.apply(adjusted, transform) : null;
+        model.applyTransform(transform, transformed, transformedAdjusted);
+        previewOriginal = null;
+        refreshHistogram();
+        refreshView();
+        updateStatusBar(String.format(Locale.ROOT, "%s in %.0f ms", transform.getLabel(),
+                (System.nanoTime() - start) / 1e6));
+    }
+
+    private BufferedImage previewSourceFor(BufferedImage image) {
+        Rectangle visible = getVisibleRect();
+        int width = Math.max(visible.width, Constants.DEFAULT_WIDTH);
+        int height = Math.max(visible.height, Constants.DEFAULT_HEIGHT);
+        boolean fits = previewSource != null && (previewSource.getWidth() == Math.min(width, image.getWidth())
+                || previewSource.getHeight() == Math.min(height, image.getHeight()));
+        if (previewOriginal != image || !fits) {
+            previewSource = imageAdjuster.downsample(image, width, height);
+            previewOriginal = image;
+        }
+        return previewSource;
+    }
+
+    private void ensureAdjustedImage() {
+        IPhotoModel document = model;
+        BufferedImage image = document.getImage();
+        int imageVersion = document.getImageVersion();
+        ImageAdjustments adjustments = document.getAdjustments();
+        if (image == null || document.getAdjustedImage() != null
+                || adjustments.equals(pendingAdjustments.get(document))) {
+            return;
+        }
+        pendingAdjustments.put(document, adjustments);
+        new SwingWorker<BufferedImage, Void>() {
+            @Override
+            protected BufferedImage doInBackground() {
+                return imageAdjuster.apply(image, adjustments);
+            }
+
+            @Override
+            protected void done() {
+                pendingAdjustments.remove(document, adjustments);
+                try {
+                    document.completeAdjustment(imageVersion, adjustments, get());
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    updateStatusBar("Adjustment failed: " + e.getMessage());
+                }
+                if (document == model) {
+                    repaint();
+                }
+            }
+        }.execute();
+    }
+
+    private BufferedImage displayedImage() {
+        BufferedImage image = model.getImage();
+        BufferedImage adjusted = model.getAdjustedImage();
+        if (adjusted != null || image == null) {
+            adjustmentPreview = null;
+            return image == null ? null : adjusted;
+        }
+        if (!adjustingSlider) {
+            ensureAdjustedImage();
+        }
+        return adjustmentPreview != null && previewOriginal == image ? adjustmentPreview : image;
+    }
+
+    private void syncAdjustments() {
+        adjustmentPreview = null;
+        adjustingSlider = false;
+        view.setAdjustments(model.getAdjustments());
+        refreshHistogram();
+    }
+
     public void setAnnotationColor(Color color) {
+        if (model.hasSelection()) {
+            repaintDamage(model.recolorSelection(color));
+            return;
+        }
         Object selectedObject = model.getSelectedObject();
         if (selectedObject != null) {
             if (selectedObject instanceof Annotation) {
@@ -127,10 +553,158 @@ public class PhotoComponent extends PACController {
     }
 
     public void loadImage(File imageFile) {
+        ImageProbe.ImageInfo info;
+        try {
+            info = ImageProbe.probe(imageFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+            updateStatusBar("Cannot open " + imageFile.getName() + ": " + e.getMessage());
+            return;
+        }
+        if (!openDocumentFor(imageFile)) {
+            return;
+        }
+        model.beginImageLoad(imageFile, new Dimension(info.width, info.height));
+        view.setDocumentTitle(workspace.getActiveIndex(), imageFile.getName());
+        syncCategorySelection();
+        syncAdjustments();
+        refreshView();
+        updateStatusBar(describe(imageFile, info) + " - decoding...");
+        decodeAsync(model, info);
+    }
+
+    // Reuses an empty active document or the tab already showing the file, otherwise opens a new tab.
+    private boolean openDocumentFor(File imageFile) {
+        for (int i = 0; i < workspace.size(); i++) {
+            if (imageFile.equals(workspace.get(i).getImageFile())) {
+                activateDocument(i);
+                return false;
+            }
+        }
+        if (model.getImageFile() != null) {
+            int index = workspace.add(new PhotoModel());
+            view.addDocumentTab(imageFile.getName());
+            activateDocument(index);
+        }
+        return true;
+    }
+
+    private void activateDocument(int index) {
+        if (index == workspace.getActiveIndex()) {
+            return;
+        }
+        model.commitCurrentText();
+        model.clearSelection();
+        resetControllerState();
+        model = workspace.activate(index);
+        view.selectDocumentTab(index);
+        syncCategorySelection();
+        syncAdjustments();
+        if (model.isImageLoading()) {
+            decodeAsync(model, null);
+        }
+        refreshView();
+    }
+
+    public void closeDocument() {
+        int index = workspace.getActiveIndex();
+        workspace.close(index);
+        view.removeDocumentTab(index);
+        if (workspace.size() == 0) {
+            workspace.add(new PhotoModel());
+            view.addDocumentTab(Constants.UNTITLED_DOCUMENT);
+        }
+        resetControllerState();
+        model = workspace.activate(Math.min(index, workspace.size() - 1));
+        view.selectDocumentTab(workspace.getActiveIndex());
+        syncCategorySelection();
+        syncAdjustments();
+        if (model.isImageLoading()) {
+            decodeAsync(model, null);
+        }
+        refreshView();
+    }
+
+    // A pixel cache hit is shown straight from the mapped file while the heap copy is made; the
+    // copy then replaces it without changing the image version.
+    private void decodeAsync(IPhotoModel document, ImageProbe.ImageInfo info) {
+        File imageFile = document.getImageFile();
+        if (imageFile == null || !decoding.add(document)) {
+            return;
+        }
+        long start = System.nanoTime();
+        int[] mappedVersion = {-1};
+        new SwingWorker<BufferedImage, Void>() {
+            @Override
+            protected BufferedImage doInBackground() throws Exception {
+                PixelCache cache = PixelCache.shared();
+                BufferedImage mapped = cache.map(imageFile);
+                if (mapped == null) {
+                    BufferedImage decoded = ImageIO.read(imageFile);
+                    cache.storeAsync(imageFile, decoded);
+                    return decoded;
+                }
+                SwingUtilities.invokeLater(() -> {
+                    document.completeImageLoad(imageFile, mapped);
+                    if (document.getImage() != mapped) {
+                        return;
+                    }
+                    mappedVersion[0] = document.getImageVersion();
+                    if (document == model) {
+                        if (info != null) {
+                            updateStatusBar(String.format(Locale.ROOT, "%s - mapped from pixel cache in %.0f ms",
+                                    describe(imageFile, info), (System.nanoTime() - start) / 1e6));
+                        }
+                        refreshHistogram();
+                        refreshView();
+                    }
+                });
+                return PixelCache.toHeap(mapped);
+            }
+
+            @Override
+            protected void done() {
+                decoding.remove(document);
+                try {
+                    if (mappedVersion[0] >= 0) {
+                        document.completeMaterialization(mappedVersion[0], get());
+                        workspace.trim();
+                        return;
+                    }
+                    document.completeImageLoad(imageFile, get());
+                    workspace.trim();
+                    if (document == model && info != null) {
+                        updateStatusBar(String.format(Locale.ROOT, "%s - decoded in %.0f ms",
+                                describe(imageFile, info), (System.nanoTime() - start) / 1e6));
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    updateStatusBar("Decode failed: " + imageFile.getName());
+                }
+                if (document == model) {
+                    refreshHistogram();
+                    refreshView();
+                }
+            }
+        }.execute();
+    }
+
+    void loadImageAndWait(File imageFile) {
         model.loadImage(imageFile);
+        syncCategorySelection();
+        syncAdjustments();
         refreshView();
     }
 
+    private static String describe(File imageFile, ImageProbe.ImageInfo info) {
+        String description = imageFile.getName() + "  " + info.width + " x " + info.height + " "
+                + info.format.toUpperCase(Locale.ROOT);
+        if (info.orientation > 1) {
+            description += " (EXIF orientation " + info.orientation + ")";
+        }
+        return description;
+    }
+
     private void startDrawing(int x, int y) {
         if (isWithinPhotoBounds(x, y)) {
             currentStroke = new Stroke(Constants.STROKE_COLOR, Constants.STROKE_WIDTH);
@@ -156,7 +730,7 @@ public class PhotoComponent extends PACController {
     }
 
     private boolean isWithinPhotoBounds(int x, int y) {
-        if (!model.hasImage()) {
+        if (!model.hasImage() && !model.isImageLoading()) {
             Dimension componentSize = getSize();
             return x >= 0 && x < componentSize.width && y >= 0 && y < componentSize.height;
         }
@@ -223,9 +797,23 @@ public class PhotoComponent extends PACController {
         int x = e.getX();
         int y = e.getY();
         
+        if (tool == Tool.ERASER) {
+            clearGroupSelection();
+            startErasing(x, y);
+            return;
+        }
+        Rectangle selectionBounds = model.getSelectionBounds();
+        if (selectionBounds != null && selectionBounds.contains(x, y)) {
+            groupDragPoint = new Point(x, y);
+            return;
+        }
+        clearGroupSelection();
+        if (tool != Tool.DRAW) {
+            startRubberBand(x, y);
+            return;
+        }
 
-        BufferedImage image = model.getImage();
-        int photoWidth = (image != null) ? image.getWidth() : 0;
+        int photoWidth = model.getImageDimensions().width;
         
   
         Object clickedObject = findObjectAt(x, y, photoWidth);
@@ -250,6 +838,22 @@ public class PhotoComponent extends PACController {
         int x = e.getX();
         int y = e.getY();
         
+        if (eraser != null) {
+            finishErasing();
+            mousePressed = false;
+            mouseMoved = false;
+            return;
+        }
+        if (groupDragPoint != null || rubberBand != null) {
+            if (rubberBand != null) {
+                finishRubberBand();
+            }
+            groupDragPoint = null;
+            mousePressed = false;
+            mouseMoved = false;
+            return;
+        }
+        
         if (mouseMoved && isDrawing) {
           
             finishDrawing();
@@ -281,6 +885,19 @@ public class PhotoComponent extends PACController {
         int x = e.getX();
         int y = e.getY();
         
+        if (groupDragPoint != null) {
+            Rectangle damage = model.moveSelection(x - groupDragPoint.x, y - groupDragPoint.y);
+            groupDragPoint.setLocation(x, y);
+            repaintDamage(damage);
+            return;
+        } else if (rubberBand != null) {
+            updateRubberBand(x, y);
+            return;
+        } else if (eraser != null) {
+            continueErasing(x, y);
+            return;
+        }
+        
         if (isDrawing) {
           
             continueDrawing(x, y);
@@ -291,8 +908,9 @@ public class PhotoComponent extends PACController {
             }
           
             Point dragOffset = model.getDragOffset();
-            int dx = x - dragOffset.x - getObjectPosition(model.getSelectedObject()).x;
-            int dy = y - dragOffset.y - getObjectPosition(model.getSelectedObject()).y;
+            Point objectPos = getObjectPosition(model.getSelectedObject());
+            int dx = x - dragOffset.x - objectPos.x;
+            int dy = y - dragOffset.y - objectPos.y;
             
             moveObject(model.getSelectedObject(), dx, dy);
         } else if (isWithinPhotoBounds(x, y)) {
@@ -303,6 +921,109 @@ public class PhotoComponent extends PACController {
         }
     }
     
+    private void startRubberBand(int x, int y) {
+        rubberBandStart = new Point(x, y);
+        if (tool == Tool.LASSO) {
+            Path2D.Float lasso = new Path2D.Float();
+            lasso.moveTo(x, y);
+            rubberBand = lasso;
+        } else {
+            rubberBand = new Rectangle(x, y, 0, 0);
+        }
+    }
+
+    private void updateRubberBand(int x, int y) {
+        Rectangle damage = rubberBand.getBounds();
+        if (rubberBand instanceof Path2D) {
+            ((Path2D) rubberBand).lineTo(x, y);
+        } else {
+            ((Rectangle) rubberBand).setFrameFromDiagonal(rubberBandStart, new Point(x, y));
+        }
+        damage.add(rubberBand.getBounds());
+        repaintDamage(damage);
+    }
+
+    private void finishRubberBand() {
+        Shape region = rubberBand;
+        rubberBand = null;
+        if (tool == Tool.CROP) {
+            cropTo(region.getBounds());
+            return;
+        }
+        if (region instanceof Path2D) {
+            ((Path2D) region).closePath();
+        }
+        Rectangle damage = region.getBounds();
+        int photoWidth = model.getImageDimensions().width;
+        for (Annotation annotation : model.getAnnotations()) {
+            annotationHitTester.boundsOf(annotation, photoWidth);
+        }
+        model.setSelection(model.findObjectsIn(region));
+        Rectangle selectionBounds = model.getSelectionBounds();
+        if (selectionBounds != null) {
+            damage.add(selectionBounds);
+        }
+        repaintDamage(damage);
+        updateStatusBar(model.getSelection().size() + " objects selected");
+    }
+
+    private void startErasing(int x, int y) {
+        eraser = new Eraser(model.getStrokes(), Constants.ERASER_RADIUS);
+        continueErasing(x, y);
+    }
+
+    // Erasing works on the session's copy of the strokes so the whole drag lands as one model change.
+    private void continueErasing(int x, int y) {
+        int radius = Constants.ERASER_RADIUS;
+        Rectangle damage = eraserCursor != null ? eraserCursor.getBounds() : new Rectangle(x, y, 0, 0);
+        eraserCursor = new Ellipse2D.Float(x - radius, y - radius, radius * 2, radius * 2);
+        damage.add(eraserCursor.getBounds());
+        Rectangle erased = eraser.eraseAt(x, y);
+        if (erased != null) {
+            damage.add(erased);
+        }
+        repaintDamage(damage);
+    }
+
+    private void finishErasing() {
+        if (eraser.hasChanges()) {
+            model.replaceStrokes(eraser.getStrokes());
+        }
+        eraser = null;
+        if (eraserCursor != null) {
+            repaintDamage(eraserCursor.getBounds());
+            eraserCursor = null;
+        }
+    }
+
+    private void cropTo(Rectangle region) {
+        model.commitCurrentText();
+        if (region.width < 2 || region.height < 2 || !model.crop(region)) {
+            repaintDamage(region);
+            return;
+        }
+        previewOriginal = null;
+        adjustmentPreview = null;
+        refreshHistogram();
+        refreshView();
+        Dimension size = model.getImageDimensions();
+        updateStatusBar("Cropped to " + size.width + " x " + size.height);
+    }
+
+    private void clearGroupSelection() {
+        Rectangle selectionBounds = model.getSelectionBounds();
+        if (selectionBounds != null) {
+            model.clearSelection();
+            repaintDamage(selectionBounds);
+        }
+    }
+
+    // One repaint covers the whole damaged area, padded for the dashed selection outline.
+    private void repaintDamage(Rectangle damage) {
+        damage.grow(2, 2);
+        repaint(damage);
+    }
+    
     private void setupKeyboardHandlers() {
         addKeyListener(createKeyListener());
     }
@@ -319,6 +1040,10 @@ public class PhotoComponent extends PACController {
         if (!model.isAnnotationsVisible()) {
             return;
         }
+        if (model.hasSelection() && e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+            clearGroupSelection();
+            return;
+        }
         
        
         if (model.getCurrentTextAnnotation() != null) {
@@ -333,7 +1058,9 @@ public class PhotoComponent extends PACController {
     }
     
     private void handleTextInput(KeyEvent e) {
-        if (e.getKeyCode() == KeyEvent.VK_BACK_SPACE) {
+        if (handleCaretKey(e, model.getCurrentTextAnnotation())) {
+            repaint();
+        } else if (e.getKeyCode() == KeyEvent.VK_BACK_SPACE) {
             model.backspaceCurrentText();
             repaint();
         } else if (e.getKeyCode() == KeyEvent.VK_ENTER) {
@@ -354,7 +1081,9 @@ public class PhotoComponent extends PACController {
             annotation.setEditing(true);
         }
         
-        if (e.getKeyCode() == KeyEvent.VK_BACK_SPACE) {
+        if (handleCaretKey(e, annotation)) {
+            repaint();
+        } else if (e.getKeyCode() == KeyEvent.VK_BACK_SPACE) {
             annotation.backspace();
             repaint();
         } else if (e.getKeyCode() == KeyEvent.VK_ENTER) {
@@ -370,23 +1099,96 @@ public class PhotoComponent extends PACController {
         }
     }
 
+    private boolean handleCaretKey(KeyEvent e, Annotation annotation) {
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_LEFT:
+                annotation.moveCaretBy(-1);
+                return true;
+            case KeyEvent.VK_RIGHT:
+                annotation.moveCaretBy(1);
+                return true;
+            case KeyEvent.VK_HOME:
+                annotation.setCaret(0);
+                return true;
+            case KeyEvent.VK_END:
+                annotation.setCaret(annotation.getTextSequence().length());
+                return true;
+            case KeyEvent.VK_DELETE:
+                annotation.deleteForward();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+        if (paintMetrics != null) {
+            paintMetrics.recordRepaintRequest();
+        }
+        super.repaint(tm, x, y, width, height);
+    }
+
+    @Override
+    protected void processMouseEvent(MouseEvent e) {
+        paintMetrics.recordEvent();
+        if (inputRecorder != null) {
+            inputRecorder.record(e);
+        }
+        super.processMouseEvent(e);
+    }
+
+    @Override
+    protected void processMouseMotionEvent(MouseEvent e) {
+        paintMetrics.recordEvent();
+        if (inputRecorder != null) {
+            inputRecorder.record(e);
+        }
+        super.processMouseMotionEvent(e);
+    }
+
+    @Override
+    protected void processKeyEvent(KeyEvent e) {
+        paintMetrics.recordEvent();
+        if (inputRecorder != null) {
+            inputRecorder.record(e);
+        }
+        super.processKeyEvent(e);
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
+        long start = System.nanoTime();
         super.paintComponent(g);
      
         boolean isFlipped = model.isFlipped();
         boolean annotationsVisible = model.isAnnotationsVisible();
-        BufferedImage image = model.getImage();
-        List<Stroke> strokes = model.getStrokes();
+        BufferedImage image = displayedImage();
+        List<Stroke> strokes = eraser != null ? eraser.getStrokes() : model.getStrokes();
         List<Annotation> annotations = model.getAnnotations();
         Annotation currentTextAnnotation = model.getCurrentTextAnnotation();
         Object selectedObject = model.getSelectedObject();
-        view.draw(g, this, isFlipped, annotationsVisible, image, strokes, annotations, currentTextAnnotation, selectedObject);
+        Dimension photoSize = model.isImageLoading() || image != model.getImage() ? model.getImageDimensions() : null;
+        view.draw(g, this, isFlipped, annotationsVisible, image, photoSize, strokes, annotations,
+                currentTextAnnotation, selectedObject);
+        if (model.hasSelection() || rubberBand != null) {
+            view.drawSelectionOverlay(g, model.getSelectionBounds(), rubberBand);
+        }
+        if (eraserCursor != null) {
+            view.drawSelectionOverlay(g, null, eraserCursor);
+        }
+        paintMetrics.record(PaintMetrics.Layer.PAINT, System.nanoTime() - start);
+        if (hudVisible) {
+            view.drawPerformanceHud(g, getVisibleRect(), paintMetrics.summaryLines());
+        }
     }
 
     @Override
     public Dimension getPreferredSize() {
      
+        if (model.isImageLoading()) {
+            return view.getPreferredSize(model.getImageDimensions());
+        }
         BufferedImage image = model.getImage();
         return view.getPreferredSize(image);
     }
@@ -397,12 +1199,8 @@ public class PhotoComponent extends PACController {
 
     public void importImage() {
    
-        JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setDialogTitle("Select Image File");
-        File imgDir = new File("img");
-        if (imgDir.exists()) {
-            fileChooser.setCurrentDirectory(imgDir);
-        }
+        JFileChooser fileChooser = FileChoosers.shared().chooser("Select Image File",
+                JFileChooser.FILES_ONLY, null);
         int result = fileChooser.showOpenDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
             File selectedFile = fileChooser.getSelectedFile();
@@ -410,6 +1208,120 @@ public class PhotoComponent extends PACController {
         }
     }
 
+    public void saveAnnotations() {
+        try {
+            model.saveAnnotations();
+            updateStatusBar("Annotations saved");
+        } catch (IOException e) {
+            e.printStackTrace();
+            updateStatusBar("Save failed: " + e.getMessage());
+        }
+    }
+
+    public void exportImage() {
+        JCheckBox embedPhoto = new JCheckBox("Embed photo in SVG", true);
+        JFileChooser fileChooser = FileChoosers.shared().chooser("Export Annotated Image",
+                JFileChooser.FILES_ONLY, embedPhoto);
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File target = fileChooser.getSelectedFile();
+        if (VectorExporter.isVectorFormat(target)) {
+            exportVector(target, embedPhoto.isSelected()
+                    ? VectorExporter.PhotoMode.EMBEDDED : VectorExporter.PhotoMode.LINKED);
+            return;
+        }
+        if (FlattenedExporter.formatOf(target) == null) {
+            target = new File(target.getPath() + ".png");
+        }
+        exportImage(target);
+    }
+
+    public void exportImage(File target) {
+        BufferedImage image = model.getImage();
+        ImageAdjustments adjustments = model.getAdjustments();
+        BufferedImage adjusted = model.getAdjustedImage();
+        List<IStroke> strokes = RenderSnapshot.strokes(model.getStrokes());
+        List<IAnnotation> annotations = RenderSnapshot.annotations(model.getAnnotations());
+        FlattenedExporter exporter = new FlattenedExporter(view);
+        materializeDuringExport(image);
+        runExport(target, () -> exporter.export(exportSource(image, adjustments, adjusted),
+                strokes, annotations, target));
+    }
+
+    public void exportVector(File target, VectorExporter.PhotoMode mode) {
+        BufferedImage image = model.getImage();
+        ImageAdjustments adjustments = model.getAdjustments();
+        BufferedImage adjusted = model.getAdjustedImage();
+        File photoFile = model.getImageFile();
+        Dimension size = model.hasImage() || model.isImageLoading()
+                ? model.getImageDimensions() : new Dimension(Constants.DEFAULT_WIDTH, Constants.DEFAULT_HEIGHT);
+        List<IStroke> strokes = RenderSnapshot.strokes(model.getStrokes());
+        List<IAnnotation> annotations = RenderSnapshot.annotations(model.getAnnotations());
+        VectorExporter exporter = new VectorExporter();
+        materializeDuringExport(image);
+        runExport(target, () -> exporter.export(exportSource(image, adjustments, adjusted), photoFile, size,
+                strokes, annotations, mode, target));
+    }
+
+    // Runs on the export thread, so a pending full-resolution adjustment is computed there.
+    private BufferedImage exportSource(BufferedImage image, ImageAdjustments adjustments, BufferedImage adjusted) {
+        if (adjusted != null || image == null) {
+            return adjusted;
+        }
+        return imageAdjuster.apply(image, adjustments);
+    }
+
+    // Exports read every pixel of a crop anyway, so the compact copy is made alongside them.
+    private void materializeDuringExport(BufferedImage image) {
+        IPhotoModel document = model;
+        if (!document.isCropView() || image == null || image.getRaster().getParent() == null) {
+            return;
+        }
+        int imageVersion = document.getImageVersion();
+        new SwingWorker<BufferedImage, Void>() {
+            @Override
+            protected BufferedImage doInBackground() {
+                return RasterTransformer.compact(image);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    document.completeMaterialization(imageVersion, get());
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }.execute();
+    }
+
+    private interface ExportTask {
+        void run() throws IOException;
+    }
+
+    private void runExport(File target, ExportTask task) {
+        updateStatusBar("Exporting " + target.getName() + "...");
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                task.run();
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                    updateStatusBar("Exported " + target.getName());
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    updateStatusBar("Export failed: " + target.getName());
+                }
+            }
+        }.execute();
+    }
+
     public JPanel createToolBar() {
         return view.createToolBar();
     }
@@ -417,13 +1329,21 @@ public class PhotoComponent extends PACController {
     public void deletePhoto() {
 
         model.clearAll();
+        view.setDocumentTitle(workspace.getActiveIndex(), Constants.UNTITLED_DOCUMENT);
 
         resetControllerState();
+        syncAdjustments();
 
         refreshView();
     }
     
     private void resetControllerState() {
+        groupDragPoint = null;
+        rubberBand = null;
+        eraser = null;
+        eraserCursor = null;
+        adjustmentPreview = null;
+        adjustingSlider = false;
         currentStroke = null;
         isDrawing = false;
         mousePressed = false;
@@ -0,0 +1,15 @@
+package interfaces;
+
+import java.awt.Color;
+import java.awt.Point;
+
+public interface IAnnotation {
+    CharSequence getTextSequence();
+    int getTextVersion();
+    int getCaret();
+    Point getPosition();
+    Color getColor();
+    boolean isEmpty();
+    boolean isEditing();
+    boolean isCommitted();
+}
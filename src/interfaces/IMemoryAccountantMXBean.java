@@ -0,0 +1,13 @@
+package interfaces;
+
+import java.util.Map;
+
+public interface IMemoryAccountantMXBean {
+    Map<String, Long> getBytesByCategory();
+    long getTotalBytes();
+    long getBudgetBytes();
+    void setBudgetBytes(long budgetBytes);
+    long getEvictedBytes();
+    long getEvictionCount();
+    void enforceBudget();
+}
@@ -0,0 +1,11 @@
+package interfaces;
+
+import java.util.Map;
+
+public interface IPaintMetricsMXBean {
+    Map<String, Double> getLatencyMillis();
+    double getEventsPerSecond();
+    long getRepaintsRequested();
+    long getRepaintsPerformed();
+    void reset();
+}
@@ -1,15 +1,44 @@
 package interfaces;
 
+import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Shape;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import model.Stroke;
 import model.Annotation;
+import utils.Histogram;
+import utils.ImageAdjustments;
+import utils.RasterTransform;
+import utils.MemoryAccountant;
 
 public interface IPhotoModel {
     void loadImage(File file);
+    void beginImageLoad(File file, Dimension dimensions);
+    void completeImageLoad(File file, BufferedImage decoded);
+    boolean isImageLoading();
+    long releaseImage();
+    void setImageCategory(MemoryAccountant.Category category);
+    ImageAdjustments getAdjustments();
+    void setAdjustments(ImageAdjustments adjustments);
+    BufferedImage getAdjustedImage();
+    void completeAdjustment(int sourceVersion, ImageAdjustments applied, BufferedImage adjusted);
+    Histogram getHistogram();
+    void completeHistogram(int sourceVersion, Histogram result);
+    int getImageVersion();
+    boolean crop(Rectangle region);
+    boolean isCropView();
+    long materializeCrop();
+    void completeMaterialization(int sourceVersion, BufferedImage compact);
+    void applyTransform(RasterTransform transform, BufferedImage transformed, BufferedImage transformedAdjusted);
+    File getImageFile();
+    void saveAnnotations() throws IOException;
     BufferedImage getImage();
     boolean hasImage();
     Dimension getImageDimensions();
@@ -28,9 +57,17 @@ public interface IPhotoModel {
     Point getDragOffset();
     void setDragOffset(Point offset);
     void clearSelection();
+    List<Object> findObjectsIn(Shape region);
+    void setSelection(Collection<?> objects);
+    Set<Object> getSelection();
+    boolean hasSelection();
+    Rectangle getSelectionBounds();
+    Rectangle moveSelection(int dx, int dy);
+    Rectangle recolorSelection(Color color);
     
     void addStroke(Stroke stroke);
     List<Stroke> getStrokes();
+    void replaceStrokes(List<Stroke> strokes);
     
     void setTextInsertionPoint(Point point);
     void setCurrentTextAnnotation(Annotation annotation);
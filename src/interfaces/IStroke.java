@@ -0,0 +1,14 @@
+package interfaces;
+
+import java.awt.Color;
+import java.awt.Shape;
+
+public interface IStroke {
+    Color getColor();
+    float getStrokeWidth();
+    boolean isEmpty();
+    Shape getShape();
+    int getTranslateX();
+    int getTranslateY();
+    int[] getCoordinates();
+}
@@ -1,9 +1,11 @@
 package model;
 
 import java.awt.*;
+import interfaces.IAnnotation;
 
-public class Annotation {
-    private StringBuilder text;
+public class Annotation implements IAnnotation {
+    private final GapBuffer text;
+    private String cachedText;
     private int x, y;
     private boolean isEditing;
     private boolean committed;
@@ -13,7 +15,7 @@ public class Annotation {
 
 
     public Annotation(Point insertionPoint) {
-        this.text = new StringBuilder();
+        this.text = new GapBuffer();
         this.x = insertionPoint.x;
         this.y = insertionPoint.y;
         this.isEditing = false;
@@ -22,12 +24,35 @@ public class Annotation {
     }
 
     public String getText() {
-        return text.toString();
+        if (cachedText == null) {
+            cachedText = text.toString();
+        }
+        return cachedText;
+    }
+
+    public CharSequence getTextSequence() {
+        return text;
+    }
+
+    public int getTextVersion() {
+        return text.getModCount();
     }
 
     public void setText(String text) {
-        this.text = new StringBuilder(text != null ? text : "");
-        invalidateBounds();
+        this.text.set(text != null ? text : "");
+        textChanged();
+    }
+
+    public int getCaret() {
+        return text.getCaret();
+    }
+
+    public void setCaret(int position) {
+        text.setCaret(position);
+    }
+
+    public void moveCaretBy(int delta) {
+        text.setCaret(text.getCaret() + delta);
     }
     
     public Point getPosition() {
@@ -62,17 +87,27 @@ public class Annotation {
     }
     
     public void addCharacter(char c) {
-        text.append(c);
-        invalidateBounds();
+        text.insert(c);
+        textChanged();
     }
     
     public void backspace() {
-        if (text.length() > 0) {
-            text.setLength(text.length() - 1);
-            invalidateBounds();
+        if (text.deleteBefore()) {
+            textChanged();
+        }
+    }
+
+    public void deleteForward() {
+        if (text.deleteAfter()) {
+            textChanged();
         }
     }
 
+    private void textChanged() {
+        cachedText = null;
+        invalidateBounds();
+    }
+
     public boolean isCommitted() {
         return committed;
     }
@@ -85,7 +120,12 @@ public class Annotation {
     public void moveBy(int dx, int dy) {
         this.x += dx;
         this.y += dy;
-        invalidateBounds();
+        // The wrap width depends on x, so only vertical moves can keep the cached bounds.
+        if (dx == 0 && cachedBounds != null) {
+            cachedBounds.translate(0, dy);
+        } else {
+            invalidateBounds();
+        }
     }
 
     public Rectangle getBounds() {
@@ -0,0 +1,129 @@
+package model;
+
+import java.awt.*;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AnnotationSidecar {
+    public static final String EXTENSION = ".annotations";
+    private static final String STROKE_RECORD = "stroke";
+    private static final String TEXT_RECORD = "text";
+
+    private final List<Stroke> strokes;
+    private final List<Annotation> annotations;
+
+    public AnnotationSidecar(List<Stroke> strokes, List<Annotation> annotations) {
+        this.strokes = new ArrayList<>(strokes);
+        this.annotations = new ArrayList<>(annotations);
+    }
+
+    public static File sidecarFor(File photo) {
+        return new File(photo.getPath() + EXTENSION);
+    }
+
+    public static AnnotationSidecar readFor(File photo) throws IOException {
+        File sidecar = sidecarFor(photo);
+        if (!sidecar.isFile()) {
+            return new AnnotationSidecar(new ArrayList<>(), new ArrayList<>());
+        }
+        return read(sidecar);
+    }
+
+    public static AnnotationSidecar read(File file) throws IOException {
+        List<Stroke> strokes = new ArrayList<>();
+        List<Annotation> annotations = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.US_ASCII)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    if (line.startsWith(STROKE_RECORD + " ")) {
+                        strokes.add(parseStroke(line));
+                    } else if (line.startsWith(TEXT_RECORD + " ")) {
+                        annotations.add(parseText(line));
+                    } else {
+                        throw new IOException("Unknown record");
+                    }
+                } catch (RuntimeException e) {
+                    throw new IOException(file + ":" + lineNumber + ": malformed record", e);
+                } catch (IOException e) {
+                    throw new IOException(file + ":" + lineNumber + ": " + e.getMessage());
+                }
+            }
+        }
+        return new AnnotationSidecar(strokes, annotations);
+    }
+
+    public void write(File file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.US_ASCII)) {
+            for (Stroke stroke : strokes) {
+                if (stroke.isEmpty()) {
+                    continue;
+                }
+                StringBuilder line = new StringBuilder(STROKE_RECORD)
+                        .append(' ').append(Integer.toHexString(stroke.getColor().getRGB()))
+                        .append(' ').append(stroke.getStrokeWidth());
+                for (Point point : stroke.getPoints()) {
+                    line.append(' ').append(point.x).append(',').append(point.y);
+                }
+                writer.write(line.toString());
+                writer.newLine();
+            }
+            for (Annotation annotation : annotations) {
+                if (annotation.isEmpty()) {
+                    continue;
+                }
+                Point position = annotation.getPosition();
+                writer.write(TEXT_RECORD + ' ' + Integer.toHexString(annotation.getColor().getRGB())
+                        + ' ' + position.x + ' ' + position.y + ' ' + annotation.getText());
+                writer.newLine();
+            }
+        }
+    }
+
+    private static Stroke parseStroke(String line) {
+        String[] fields = line.split(" ");
+        Stroke stroke = new Stroke(parseColor(fields[1]), Float.parseFloat(fields[2]));
+        for (int i = 3; i < fields.length; i++) {
+            int comma = fields[i].indexOf(',');
+            stroke.addPoint(Integer.parseInt(fields[i].substring(0, comma)),
+                    Integer.parseInt(fields[i].substring(comma + 1)));
+        }
+        return stroke;
+    }
+
+    private static Annotation parseText(String line) {
+        String[] fields = line.split(" ", 5);
+        Annotation annotation = new Annotation(new Point(Integer.parseInt(fields[2]), Integer.parseInt(fields[3])));
+        annotation.setColor(parseColor(fields[1]));
+        annotation.setText(fields.length > 4 ? fields[4] : "");
+        annotation.setCommitted(true);
+        return annotation;
+    }
+
+    private static Color parseColor(String hex) {
+        return new Color((int) Long.parseLong(hex, 16), true);
+    }
+
+    public List<Stroke> getStrokes() {
+        return new ArrayList<>(strokes);
+    }
+
+    public List<Annotation> getAnnotations() {
+        return new ArrayList<>(annotations);
+    }
+
+    public boolean isEmpty() {
+        return strokes.isEmpty() && annotations.isEmpty();
+    }
+}
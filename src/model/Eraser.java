@@ -0,0 +1,63 @@
+package model;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+public class Eraser {
+    private List<Stroke> strokes;
+    private final double radius;
+    private boolean changed;
+    private Point previous;
+
+    public Eraser(List<Stroke> strokes, double radius) {
+        this.strokes = new ArrayList<>(strokes);
+        this.radius = radius;
+    }
+
+    // Works on a private copy of the stroke list; the model only sees the result once the drag ends.
+    // Erases along the whole path from the previous position, so a fast drag leaves no gaps.
+    public Rectangle eraseAt(int x, int y) {
+        Point from = previous != null ? previous : new Point(x, y);
+        previous = new Point(x, y);
+        List<Stroke> result = null;
+        Rectangle damage = null;
+        for (int i = 0; i < strokes.size(); i++) {
+            Stroke stroke = strokes.get(i);
+            List<Stroke> pieces = stroke.eraseWithin(from.x, from.y, x, y, radius);
+            if (pieces == null) {
+                if (result != null) {
+                    result.add(stroke);
+                }
+                continue;
+            }
+            if (result == null) {
+                result = new ArrayList<>(strokes.size() + pieces.size());
+                result.addAll(strokes.subList(0, i));
+            }
+            result.addAll(pieces);
+            Rectangle bounds = stroke.getBounds();
+            int padding = (int) Math.ceil(stroke.getStrokeWidth() / 2) + 1;
+            bounds.grow(padding, padding);
+            if (damage == null) {
+                damage = bounds;
+            } else {
+                damage.add(bounds);
+            }
+        }
+        if (result != null) {
+            strokes = result;
+            changed = true;
+        }
+        return damage;
+    }
+
+    public List<Stroke> getStrokes() {
+        return strokes;
+    }
+
+    public boolean hasChanges() {
+        return changed;
+    }
+}
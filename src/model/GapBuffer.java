@@ -0,0 +1,129 @@
+package model;
+
+public class GapBuffer implements CharSequence {
+    private static final int MIN_GAP = 16;
+
+    private char[] buffer;
+    private int gapStart;
+    private int gapEnd;
+    private int modCount;
+
+    public GapBuffer() {
+        this("");
+    }
+
+    public GapBuffer(CharSequence text) {
+        set(text);
+    }
+
+    public void set(CharSequence text) {
+        int length = text.length();
+        buffer = new char[length + MIN_GAP];
+        for (int i = 0; i < length; i++) {
+            buffer[i] = text.charAt(i);
+        }
+        gapStart = length;
+        gapEnd = buffer.length;
+        modCount++;
+    }
+
+    @Override
+    public int length() {
+        return buffer.length - (gapEnd - gapStart);
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length());
+        }
+        return index < gapStart ? buffer[index] : buffer[index + gapEnd - gapStart];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException("range " + start + ".." + end + ", length " + length());
+        }
+        char[] chars = new char[end - start];
+        copyTo(start, end, chars);
+        return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+        char[] chars = new char[length()];
+        copyTo(0, chars.length, chars);
+        return new String(chars);
+    }
+
+    private void copyTo(int start, int end, char[] target) {
+        int before = Math.max(0, Math.min(end, gapStart) - start);
+        if (before > 0) {
+            System.arraycopy(buffer, start, target, 0, before);
+        }
+        int after = end - start - before;
+        if (after > 0) {
+            System.arraycopy(buffer, Math.max(start, gapStart) + gapEnd - gapStart, target, before, after);
+        }
+    }
+
+    public int getCaret() {
+        return gapStart;
+    }
+
+    // Moving the caret slides the gap, so edits near the caret never shift the rest of the text.
+    public void setCaret(int position) {
+        position = Math.max(0, Math.min(length(), position));
+        if (position < gapStart) {
+            int count = gapStart - position;
+            System.arraycopy(buffer, position, buffer, gapEnd - count, count);
+            gapStart -= count;
+            gapEnd -= count;
+        } else if (position > gapStart) {
+            int count = position - gapStart;
+            System.arraycopy(buffer, gapEnd, buffer, gapStart, count);
+            gapStart += count;
+            gapEnd += count;
+        }
+    }
+
+    public void insert(char c) {
+        if (gapStart == gapEnd) {
+            grow();
+        }
+        buffer[gapStart++] = c;
+        modCount++;
+    }
+
+    public boolean deleteBefore() {
+        if (gapStart == 0) {
+            return false;
+        }
+        gapStart--;
+        modCount++;
+        return true;
+    }
+
+    public boolean deleteAfter() {
+        if (gapEnd == buffer.length) {
+            return false;
+        }
+        gapEnd++;
+        modCount++;
+        return true;
+    }
+
+    public int getModCount() {
+        return modCount;
+    }
+
+    private void grow() {
+        int tail = buffer.length - gapEnd;
+        char[] grown = new char[Math.max(buffer.length * 2, buffer.length + MIN_GAP)];
+        System.arraycopy(buffer, 0, grown, 0, gapStart);
+        System.arraycopy(buffer, gapEnd, grown, grown.length - tail, tail);
+        gapEnd = grown.length - tail;
+        buffer = grown;
+    }
+}
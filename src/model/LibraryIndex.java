@@ -0,0 +1,397 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+import utils.FileUtils;
+import utils.ImageProbe;
+
+public class LibraryIndex {
+    public static final String FILE_NAME = "library.bin";
+    public static final String WATCH_PROPERTY = "photoviewer.watchLibrary";
+    private static final int MAGIC = 0x5056494C;
+    private static final int VERSION = 1;
+    private static LibraryIndex shared;
+
+    public static class Entry {
+        public final String path;
+        public final long size;
+        public final long modified;
+        public final int width;
+        public final int height;
+        public final String format;
+
+        public Entry(String path, long size, long modified, int width, int height, String format) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.width = width;
+            this.height = height;
+            this.format = format;
+        }
+    }
+
+    public static class ScanResult {
+        public final List<String> added = new ArrayList<>();
+        public final List<String> removed = new ArrayList<>();
+        public long elapsedNanos;
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    private final File file;
+    private final List<String> roots = new CopyOnWriteArrayList<>();
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> suffixes = new HashSet<>();
+    private final List<Consumer<ScanResult>> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService scanner = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "library-scanner");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ForkJoinPool probePool = ForkJoinPool.commonPool();
+    private final AtomicBoolean scanQueued = new AtomicBoolean();
+    private volatile boolean rootsChanged;
+    private final AtomicBoolean modified = new AtomicBoolean();
+    private WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+
+    public LibraryIndex(File file) {
+        this.file = file;
+        for (String suffix : ImageIO.getReaderFileSuffixes()) {
+            suffixes.add(suffix.toLowerCase(Locale.ROOT));
+        }
+        if (file.isFile()) {
+            try {
+                load();
+            } catch (IOException e) {
+                e.printStackTrace();
+                roots.clear();
+                entries.clear();
+            }
+        }
+    }
+
+    public static synchronized LibraryIndex shared() {
+        if (shared == null) {
+            shared = new LibraryIndex(new File(FileUtils.appDataDirectory(), FILE_NAME));
+        }
+        return shared;
+    }
+
+    public void addListener(Consumer<ScanResult> listener) {
+        listeners.add(listener);
+    }
+
+    public List<String> getRoots() {
+        return new ArrayList<>(roots);
+    }
+
+    public void addRoot(File directory) {
+        String root = directory.getAbsolutePath();
+        if (!roots.contains(root)) {
+            roots.add(root);
+            rootsChanged = true;
+        }
+        rescanAsync();
+    }
+
+    public Entry get(String path) {
+        return entries.get(path);
+    }
+
+    public Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void rescanAsync() {
+        if (!scanQueued.compareAndSet(false, true)) {
+            return;
+        }
+        scanner.execute(() -> {
+            scanQueued.set(false);
+            try {
+                ScanResult result = rescan();
+                if (watchService != null) {
+                    watchRoots();
+                }
+                publish(result);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    public synchronized ScanResult rescan() throws IOException {
+        long start = System.nanoTime();
+        ScanResult result = new ScanResult();
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        Set<String> listed = ConcurrentHashMap.newKeySet();
+        List<String> added = new CopyOnWriteArrayList<>();
+        for (String root : roots) {
+            Path rootPath = new File(root).toPath();
+            if (Files.isDirectory(rootPath)) {
+                probePool.invoke(new DirectoryScan(rootPath, seen, listed, added));
+            }
+        }
+        result.added.addAll(added);
+        for (Iterator<String> it = entries.keySet().iterator(); it.hasNext(); ) {
+            String path = it.next();
+            if (!seen.contains(path) && isGone(path, listed)) {
+                it.remove();
+                result.removed.add(path);
+            }
+        }
+        // Re-probed entries change nothing in the result but still need persisting.
+        if (modified.getAndSet(false) || !result.isEmpty() || rootsChanged) {
+            rootsChanged = false;
+            save();
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    // Only a complete listing proves a file is gone. Entries under an unmounted root or a directory
+    // that failed to list are kept, since removing them would also retire their tags.
+    private boolean isGone(String path, Set<String> listed) {
+        File parent = new File(path).getParentFile();
+        if (listed.contains(parent.getPath())) {
+            return true;
+        }
+        for (File directory = parent; directory != null; directory = directory.getParentFile()) {
+            if (listed.contains(directory.getPath())) {
+                // A listed ancestor whose subdirectory no longer exists.
+                return !parent.exists();
+            }
+        }
+        return false;
+    }
+
+    private boolean isImage(Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && suffixes.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private Entry index(Path path, BasicFileAttributes attributes) {
+        long size = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+        try {
+            ImageProbe.ImageInfo info = ImageProbe.probe(path.toFile());
+            return new Entry(path.toString(), size, modified, info.width, info.height, info.format);
+        } catch (IOException | RuntimeException e) {
+            // Unreadable headers are indexed without dimensions and retried once the file changes.
+            return new Entry(path.toString(), size, modified, -1, -1, "");
+        }
+    }
+
+    private class DirectoryScan extends RecursiveAction {
+        private final Path directory;
+        private final Set<String> seen;
+        private final Set<String> listed;
+        private final List<String> added;
+
+        DirectoryScan(Path directory, Set<String> seen, Set<String> listed, List<String> added) {
+            this.directory = directory;
+            this.seen = seen;
+            this.listed = listed;
+            this.added = added;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryScan> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+                for (Path child : children) {
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException e) {
+                        // An unreadable file keeps whatever entry it already has.
+                        seen.add(child.toString());
+                        continue;
+                    }
+                    if (attributes.isDirectory()) {
+                        subdirectories.add(new DirectoryScan(child, seen, listed, added));
+                    } else if (attributes.isRegularFile() && isImage(child)) {
+                        String path = child.toString();
+                        seen.add(path);
+                        Entry existing = entries.get(path);
+                        if (existing == null || existing.size != attributes.size()
+                                || existing.modified != attributes.lastModifiedTime().toMillis()) {
+                            entries.put(path, index(child, attributes));
+                            modified.set(true);
+                            if (existing == null) {
+                                added.add(path);
+                            }
+                        }
+                    }
+                }
+                listed.add(directory.toString());
+            } catch (IOException | DirectoryIteratorException e) {
+                // Directories that vanish or deny access mid-scan keep their existing entries.
+            }
+            invokeAll(subdirectories);
+        }
+    }
+
+    public synchronized void startWatching() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        watchRoots();
+        Thread watcher = new Thread(this::watchLoop, "library-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watchRoots() throws IOException {
+        Set<Path> registered = new HashSet<>(watchedDirectories.values());
+        for (String root : roots) {
+            Path rootPath = new File(root).toPath();
+            if (!Files.isDirectory(rootPath)) {
+                continue;
+            }
+            try (Stream<Path> directories = Files.walk(rootPath)) {
+                for (Iterator<Path> it = directories.filter(Files::isDirectory).iterator(); it.hasNext(); ) {
+                    Path directory = it.next();
+                    if (registered.add(directory)) {
+                        WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                        watchedDirectories.put(key, directory);
+                    }
+                }
+            }
+        }
+    }
+
+    private void watchLoop() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            // Any change triggers an mtime rescan; unchanged files cost one stat each.
+            key.pollEvents();
+            if (!key.reset()) {
+                watchedDirectories.remove(key);
+            }
+            rescanAsync();
+        }
+    }
+
+    private void publish(ScanResult result) {
+        for (Consumer<ScanResult> listener : listeners) {
+            listener.accept(result);
+        }
+    }
+
+    private synchronized void save() throws IOException {
+        Map<String, Integer> directoryIds = new LinkedHashMap<>();
+        Map<String, Integer> formatIds = new LinkedHashMap<>();
+        List<Entry> snapshot = new ArrayList<>(entries.values());
+        for (Entry entry : snapshot) {
+            directoryIds.putIfAbsent(new File(entry.path).getParent(), directoryIds.size());
+            formatIds.putIfAbsent(entry.format, formatIds.size());
+        }
+        File temporary = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            writeStrings(out, roots);
+            writeStrings(out, directoryIds.keySet());
+            writeStrings(out, formatIds.keySet());
+            out.writeInt(snapshot.size());
+            for (Entry entry : snapshot) {
+                File entryFile = new File(entry.path);
+                out.writeInt(directoryIds.get(entryFile.getParent()));
+                out.writeUTF(entryFile.getName());
+                out.writeLong(entry.size);
+                out.writeLong(entry.modified);
+                out.writeInt(entry.width);
+                out.writeInt(entry.height);
+                out.writeShort(formatIds.get(entry.format));
+            }
+        }
+        FileUtils.replace(temporary, file);
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                throw new IOException(file + " is not a version " + VERSION + " library index");
+            }
+            roots.addAll(readStrings(in));
+            List<String> directories = readStrings(in);
+            List<String> formats = readStrings(in);
+            int count = in.readInt();
+            Map<String, Entry> loaded = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String path = new File(directories.get(in.readInt()), in.readUTF()).getPath();
+                loaded.put(path, new Entry(path, in.readLong(), in.readLong(), in.readInt(), in.readInt(),
+                        formats.get(in.readShort())));
+            }
+            entries.putAll(loaded);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, Collection<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(in.readUTF());
+        }
+        return values;
+    }
+}
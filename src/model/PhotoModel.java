@@ -1,26 +1,62 @@
 package model;
 
 import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import javax.imageio.ImageIO;
+import java.util.Set;
 import interfaces.IPhotoModel;
+import utils.Histogram;
+import utils.ImageAdjustments;
+import utils.MappedDataBuffer;
+import utils.RasterTransform;
+import utils.RasterTransformer;
+import utils.MemoryAccountant;
 
 public class PhotoModel implements IPhotoModel {
     private BufferedImage image;
+    private File imageFile;
+    private Dimension probedDimensions;
     private boolean flipped;  
     private boolean annotationsVisible;
     private final List<Annotation> annotations;  
     private final List<Stroke> strokes;  
     private Annotation currentTextAnnotation;
     private Object selectedObject;
+    private final Set<Object> selection = new LinkedHashSet<>();
+    private Rectangle selectionBounds;
     private boolean isDragging;
     private Point dragOffset;
+    private final MemoryAccountant memoryAccountant = MemoryAccountant.shared();
+    private long accountedImageBytes;
+    private int imageVersion;
+    private boolean pixelsEdited;
+    private ImageAdjustments adjustments = ImageAdjustments.IDENTITY;
+    private BufferedImage adjustedImage;
+    private long accountedAdjustedBytes;
+    private Histogram histogram;
+    private int histogramVersion;
+    private MemoryAccountant.Category imageCategory = MemoryAccountant.Category.DECODED_IMAGES;
+    private long accountedStrokeBytes;
+    private long accountedTextBytes;
+    // Maps the displayed raster back to the file it was decoded from, and holds what a crop cut
+    // away already in file space, so saving writes the sidecar against the unedited photo.
+    private final AffineTransform toFile = new AffineTransform();
+    private final List<Stroke> croppedStrokes = new ArrayList<>();
+    private final List<Annotation> croppedAnnotations = new ArrayList<>();
 
     public PhotoModel() {
         this.image = null;
+        this.imageFile = null;
         this.flipped = false;  
         this.annotationsVisible = true;
         this.annotations = new ArrayList<>();
@@ -33,16 +69,333 @@ public class PhotoModel implements IPhotoModel {
 
     public void loadImage(File file) {
         clearAnnotations();
+        this.adjustments = ImageAdjustments.IDENTITY;
+        this.imageFile = file;
+        toFile.setToIdentity();
+        this.probedDimensions = null;
+        setImage(null);
         if (file == null) {
-            this.image = null;
             return;
         }
         try {
-            this.image = ImageIO.read(file);
+            setImage(PixelCache.shared().read(file));
         } catch (Exception e) {
             e.printStackTrace();
-            this.image = null;
+            setImage(null);
         }
+        loadSidecar(file);
+    }
+
+    public void beginImageLoad(File file, Dimension dimensions) {
+        clearAnnotations();
+        this.adjustments = ImageAdjustments.IDENTITY;
+        this.imageFile = file;
+        toFile.setToIdentity();
+        this.probedDimensions = dimensions;
+        setImage(null);
+        if (file != null) {
+            loadSidecar(file);
+        }
+    }
+
+    public void completeImageLoad(File file, BufferedImage decoded) {
+        if (file == null || !file.equals(imageFile)) {
+            return;
+        }
+        probedDimensions = null;
+        setImage(decoded);
+    }
+
+    public boolean isImageLoading() {
+        return image == null && probedDimensions != null;
+    }
+
+    private void loadSidecar(File file) {
+        try {
+            AnnotationSidecar sidecar = AnnotationSidecar.readFor(file);
+            for (Stroke stroke : sidecar.getStrokes()) {
+                addStroke(stroke);
+            }
+            annotations.addAll(sidecar.getAnnotations());
+            updateTextAccounting();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public File getImageFile() {
+        return imageFile;
+    }
+
+    public void saveAnnotations() throws IOException {
+        if (imageFile == null) {
+            throw new IOException("No photo loaded");
+        }
+        AnnotationSidecar sidecar;
+        if (toFile.isIdentity() && croppedStrokes.isEmpty() && croppedAnnotations.isEmpty()) {
+            sidecar = new AnnotationSidecar(strokes, annotations);
+        } else {
+            List<Stroke> fileStrokes = new ArrayList<>(strokes.size() + croppedStrokes.size());
+            for (Stroke stroke : strokes) {
+                fileStrokes.add(inFileSpace(stroke));
+            }
+            fileStrokes.addAll(croppedStrokes);
+            List<Annotation> fileAnnotations = new ArrayList<>(annotations.size() + croppedAnnotations.size());
+            for (Annotation annotation : annotations) {
+                fileAnnotations.add(inFileSpace(annotation));
+            }
+            fileAnnotations.addAll(croppedAnnotations);
+            sidecar = new AnnotationSidecar(fileStrokes, fileAnnotations);
+        }
+        sidecar.write(AnnotationSidecar.sidecarFor(imageFile));
+    }
+
+    private Stroke inFileSpace(Stroke stroke) {
+        Stroke copy = new Stroke(stroke.getColor(), stroke.getStrokeWidth());
+        copy.setCoordinates(toFileCoordinates(stroke.getCoordinates()));
+        return copy;
+    }
+
+    private Annotation inFileSpace(Annotation annotation) {
+        Point position = annotation.getPosition();
+        int[] mapped = toFileCoordinates(new int[] {position.x, position.y});
+        Annotation copy = new Annotation(new Point(mapped[0], mapped[1]));
+        copy.setColor(annotation.getColor());
+        copy.setText(annotation.getText());
+        copy.setCommitted(true);
+        return copy;
+    }
+
+    private int[] toFileCoordinates(int[] coordinates) {
+        double[] points = new double[coordinates.length];
+        for (int i = 0; i < coordinates.length; i++) {
+            points[i] = coordinates[i];
+        }
+        toFile.transform(points, 0, points, 0, coordinates.length / 2);
+        int[] mapped = new int[coordinates.length];
+        for (int i = 0; i < mapped.length; i++) {
+            mapped[i] = (int) Math.round(points[i]);
+        }
+        return mapped;
+    }
+
+    private void setImage(BufferedImage image) {
+        this.image = image;
+        imageVersion++;
+        pixelsEdited = false;
+        long bytes = MemoryAccountant.imageBytes(image);
+        memoryAccountant.add(imageCategory, bytes - accountedImageBytes);
+        accountedImageBytes = bytes;
+        setAdjustedImage(null);
+    }
+
+    private void setAdjustedImage(BufferedImage adjusted) {
+        this.adjustedImage = adjusted;
+        long bytes = MemoryAccountant.imageBytes(adjusted);
+        memoryAccountant.add(imageCategory, bytes - accountedAdjustedBytes);
+        accountedAdjustedBytes = bytes;
+    }
+
+    public void setImageCategory(MemoryAccountant.Category category) {
+        if (category == imageCategory) {
+            return;
+        }
+        long bytes = accountedImageBytes + accountedAdjustedBytes;
+        memoryAccountant.release(imageCategory, bytes);
+        imageCategory = category;
+        memoryAccountant.add(category, bytes);
+    }
+
+    // Edited pixels cannot be decoded again from the file, so those documents only give back
+    // the parent raster of a crop view.
+    public long releaseImage() {
+        if (image == null) {
+            return 0;
+        } else if (pixelsEdited) {
+            return materializeCrop();
+        }
+        long freed = accountedImageBytes + accountedAdjustedBytes;
+        probedDimensions = new Dimension(image.getWidth(), image.getHeight());
+        setImage(null);
+        return freed;
+    }
+
+    public ImageAdjustments getAdjustments() {
+        return adjustments;
+    }
+
+    public void setAdjustments(ImageAdjustments adjustments) {
+        if (adjustments.equals(this.adjustments)) {
+            return;
+        }
+        this.adjustments = adjustments;
+        setAdjustedImage(null);
+    }
+
+    // Null while a non-identity adjustment has not been rendered at full resolution yet.
+    public BufferedImage getAdjustedImage() {
+        if (adjustments.isIdentity()) {
+            return image;
+        }
+        return adjustedImage;
+    }
+
+    public void completeAdjustment(int sourceVersion, ImageAdjustments applied, BufferedImage adjusted) {
+        if (sourceVersion == imageVersion && applied.equals(adjustments)) {
+            setAdjustedImage(adjusted);
+        }
+    }
+
+    // Bumped whenever the pixels change.
+    public int getImageVersion() {
+        return imageVersion;
+    }
+
+    // Null until statistics have been gathered for the current pixels.
+    public Histogram getHistogram() {
+        return histogramVersion == imageVersion ? histogram : null;
+    }
+
+    // A sampled answer never replaces an exact one for the same version.
+    public void completeHistogram(int sourceVersion, Histogram result) {
+        if (sourceVersion != imageVersion) {
+            return;
+        }
+        Histogram current = getHistogram();
+        if (current == null || result.isExact() || !current.isExact()) {
+            histogram = result;
+            histogramVersion = sourceVersion;
+        }
+    }
+
+    public void applyTransform(RasterTransform transform, BufferedImage transformed, BufferedImage transformedAdjusted) {
+        if (image == null) {
+            return;
+        }
+        Histogram unchanged = getHistogram();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        for (Stroke stroke : strokes) {
+            int[] coordinates = stroke.getCoordinates();
+            transform.mapCoordinates(coordinates, width, height);
+            stroke.setCoordinates(coordinates);
+        }
+        int[] position = new int[2];
+        for (Annotation annotation : annotations) {
+            Point point = annotation.getPosition();
+            position[0] = point.x;
+            position[1] = point.y;
+            transform.mapCoordinates(position, width, height);
+            annotation.setPosition(new Point(position[0], position[1]));
+        }
+        toFile.concatenate(transform.toSource(width, height));
+        replaceStrokes(new ArrayList<>(strokes));
+        clearSelection();
+        setImage(transformed);
+        pixelsEdited = true;
+        // Moving pixels around leaves their distribution as it was.
+        if (unchanged != null) {
+            completeHistogram(imageVersion, unchanged);
+        }
+        if (transformedAdjusted != null && !adjustments.isIdentity()) {
+            setAdjustedImage(transformedAdjusted);
+        }
+    }
+
+    // The crop starts as a sub-image view sharing the decoded raster, so it costs no copy; the
+    // parent raster stays accounted until materializeCrop replaces the view with its own pixels.
+    public boolean crop(Rectangle region) {
+        if (image == null) {
+            return false;
+        }
+        Rectangle bounds = region.intersection(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        if (bounds.isEmpty()) {
+            return false;
+        }
+        toFile.translate(bounds.x, bounds.y);
+        List<Stroke> kept = new ArrayList<>(strokes.size());
+        Rectangle visible = new Rectangle(0, 0, bounds.width, bounds.height);
+        for (Stroke stroke : strokes) {
+            stroke.moveBy(-bounds.x, -bounds.y);
+            Rectangle strokeBounds = stroke.getBounds();
+            strokeBounds.grow(1, 1);
+            if (strokeBounds.intersects(visible)) {
+                kept.add(stroke);
+            } else if (!stroke.isEmpty()) {
+                croppedStrokes.add(inFileSpace(stroke));
+            }
+        }
+        for (Iterator<Annotation> it = annotations.iterator(); it.hasNext(); ) {
+            Annotation annotation = it.next();
+            annotation.moveBy(-bounds.x, -bounds.y);
+            if (!visible.contains(annotation.getPosition())) {
+                it.remove();
+                if (!annotation.isEmpty()) {
+                    croppedAnnotations.add(inFileSpace(annotation));
+                }
+            }
+        }
+        if (currentTextAnnotation != null && !annotations.contains(currentTextAnnotation)) {
+            currentTextAnnotation = null;
+        }
+        replaceStrokes(kept);
+        updateTextAccounting();
+        clearSelection();
+        BufferedImage adjusted = adjustments.isIdentity() ? null : adjustedImage;
+        setImage(image.getSubimage(bounds.x, bounds.y, bounds.width, bounds.height));
+        pixelsEdited = true;
+        if (adjusted != null) {
+            setAdjustedImage(adjusted.getSubimage(bounds.x, bounds.y, bounds.width, bounds.height));
+        }
+        return true;
+    }
+
+    public boolean isCropView() {
+        return isView(image) || isView(adjustedImage);
+    }
+
+    private static boolean isView(BufferedImage image) {
+        return image != null && image.getRaster().getParent() != null;
+    }
+
+    public long materializeCrop() {
+        if (!isCropView()) {
+            return 0;
+        }
+        long before = accountedImageBytes + accountedAdjustedBytes;
+        BufferedImage adjusted = adjustedImage;
+        if (isView(image)) {
+            replacePixels(RasterTransformer.compact(image));
+        }
+        if (isView(adjusted)) {
+            setAdjustedImage(RasterTransformer.compact(adjusted));
+        }
+        return before - accountedImageBytes - accountedAdjustedBytes;
+    }
+
+    // Accepts a copy made off the event thread, if the crop view or mapped cache image it was
+    // copied from is still current.
+    public void completeMaterialization(int sourceVersion, BufferedImage compact) {
+        if (sourceVersion == imageVersion && (isView(image) || MappedDataBuffer.isMapped(image))) {
+            replacePixels(compact);
+        }
+    }
+
+    // Swaps in identical pixels in a new raster, so the version and adjusted cache stay valid.
+    private void replacePixels(BufferedImage replacement) {
+        this.image = replacement;
+        long bytes = MemoryAccountant.imageBytes(replacement);
+        memoryAccountant.add(imageCategory, bytes - accountedImageBytes);
+        accountedImageBytes = bytes;
+    }
+
+    private void updateTextAccounting() {
+        long bytes = 0;
+        for (Annotation annotation : annotations) {
+            bytes += MemoryAccountant.textBytes(annotation.getTextSequence().length());
+        }
+        memoryAccountant.add(MemoryAccountant.Category.ANNOTATION_TEXT, bytes - accountedTextBytes);
+        accountedTextBytes = bytes;
     }
 
     public BufferedImage getImage() {
@@ -90,8 +443,107 @@ public class PhotoModel implements IPhotoModel {
         this.dragOffset = offset;
     }
 
+    public List<Object> findObjectsIn(Shape region) {
+        Rectangle2D regionBounds = region.getBounds2D();
+        boolean rectangular = region instanceof Rectangle2D;
+        List<Object> found = new ArrayList<>();
+        for (Stroke stroke : strokes) {
+            if (!stroke.isEmpty() && encloses(regionBounds, stroke.getBounds())
+                    && (rectangular || stroke.isInside(region))) {
+                found.add(stroke);
+            }
+        }
+        for (Annotation annotation : annotations) {
+            Rectangle bounds = annotation.getBounds();
+            if (!annotation.isEmpty() && bounds != null && encloses(regionBounds, bounds)
+                    && (rectangular || region.contains(bounds))) {
+                found.add(annotation);
+            }
+        }
+        return found;
+    }
+
+    private static boolean encloses(Rectangle2D outer, Rectangle inner) {
+        return inner.x >= outer.getMinX() && inner.y >= outer.getMinY()
+                && inner.x + inner.width <= outer.getMaxX() && inner.y + inner.height <= outer.getMaxY();
+    }
+
+    public void setSelection(Collection<?> objects) {
+        selection.clear();
+        selection.addAll(objects);
+        selectedObject = null;
+        selectionBounds = null;
+        for (Object object : selection) {
+            Rectangle bounds = boundsOf(object);
+            if (selectionBounds == null) {
+                selectionBounds = bounds;
+            } else {
+                selectionBounds.add(bounds);
+            }
+        }
+    }
+
+    private static Rectangle boundsOf(Object object) {
+        if (object instanceof Stroke) {
+            Stroke stroke = (Stroke) object;
+            Rectangle bounds = stroke.getBounds();
+            int padding = (int) Math.ceil(stroke.getStrokeWidth() / 2) + 1;
+            bounds.grow(padding, padding);
+            return bounds;
+        }
+        Annotation annotation = (Annotation) object;
+        Rectangle bounds = annotation.getBounds();
+        return bounds != null ? new Rectangle(bounds) : new Rectangle(annotation.getPosition());
+    }
+
+    public Set<Object> getSelection() {
+        return new LinkedHashSet<>(selection);
+    }
+
+    public boolean hasSelection() {
+        return !selection.isEmpty();
+    }
+
+    public Rectangle getSelectionBounds() {
+        return selectionBounds != null ? new Rectangle(selectionBounds) : null;
+    }
+
+    // Bulk edits return the damaged area so the caller can repaint once for the whole group.
+    public Rectangle moveSelection(int dx, int dy) {
+        if (selection.isEmpty()) {
+            return new Rectangle();
+        }
+        Rectangle damage = new Rectangle(selectionBounds);
+        for (Object object : selection) {
+            if (object instanceof Stroke) {
+                ((Stroke) object).moveBy(dx, dy);
+            } else if (object instanceof Annotation) {
+                ((Annotation) object).moveBy(dx, dy);
+            }
+        }
+        selectionBounds.translate(dx, dy);
+        damage.add(selectionBounds);
+        return damage;
+    }
+
+    public Rectangle recolorSelection(Color color) {
+        if (selection.isEmpty()) {
+            return new Rectangle();
+        }
+        for (Object object : selection) {
+            if (object instanceof Stroke) {
+                ((Stroke) object).setColor(color);
+            } else if (object instanceof Annotation) {
+                ((Annotation) object).setColor(color);
+            }
+        }
+        return new Rectangle(selectionBounds);
+    }
+
     public void clearSelection() {
         this.selectedObject = null;
+        this.selection.clear();
+        this.selectionBounds = null;
         this.isDragging = false;
         this.dragOffset = null;
     }
@@ -101,13 +553,37 @@ public class PhotoModel implements IPhotoModel {
     }
 
     public void addStroke(Stroke stroke) {
+        stroke.compact();
         strokes.add(stroke);
+        long bytes = stroke.getMemoryBytes();
+        accountedStrokeBytes += bytes;
+        memoryAccountant.add(MemoryAccountant.Category.STROKE_POINTS, bytes);
     }
 
     public List<Stroke> getStrokes() {
         return new ArrayList<>(strokes);
     }
 
+    public void replaceStrokes(List<Stroke> replacement) {
+        Set<Stroke> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        kept.addAll(replacement);
+        for (Stroke stroke : strokes) {
+            if (!kept.contains(stroke)) {
+                stroke.discard();
+            }
+        }
+        strokes.clear();
+        strokes.addAll(replacement);
+        long bytes = 0;
+        for (Stroke stroke : strokes) {
+            stroke.compact();
+            bytes += stroke.getMemoryBytes();
+        }
+        memoryAccountant.release(MemoryAccountant.Category.STROKE_POINTS, accountedStrokeBytes);
+        accountedStrokeBytes = bytes;
+        memoryAccountant.add(MemoryAccountant.Category.STROKE_POINTS, bytes);
+    }
+
     public void setTextInsertionPoint(Point point) {
         if (point != null) {
             currentTextAnnotation = new Annotation(point);
@@ -149,23 +625,34 @@ public class PhotoModel implements IPhotoModel {
                 annotations.remove(currentTextAnnotation);
             }
             currentTextAnnotation = null;
+            updateTextAccounting();
         }
     }
 
     public void clearAll() {
-        image = null;  
+        setImage(null);
+        imageFile = null;
+        toFile.setToIdentity();
+        probedDimensions = null;
+        adjustments = ImageAdjustments.IDENTITY;
         flipped = false;  
         annotationsVisible = true;
-        annotations.clear();
-        strokes.clear();
-        currentTextAnnotation = null;
+        clearAnnotations();
         clearSelection();
     }
 
     public void clearAnnotations() {
         annotations.clear();
+        croppedStrokes.clear();
+        croppedAnnotations.clear();
+        for (Stroke stroke : strokes) {
+            stroke.discard();
+        }
         strokes.clear();
         currentTextAnnotation = null;
+        memoryAccountant.release(MemoryAccountant.Category.STROKE_POINTS, accountedStrokeBytes);
+        accountedStrokeBytes = 0;
+        updateTextAccounting();
     }
 
 
@@ -177,6 +664,8 @@ public class PhotoModel implements IPhotoModel {
 
         if (image != null) {
             return new Dimension(image.getWidth(), image.getHeight());
+        } else if (probedDimensions != null) {
+            return new Dimension(probedDimensions);
         }
         return new Dimension(0, 0);
     }
@@ -0,0 +1,301 @@
+package model;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.imageio.ImageIO;
+import utils.Constants;
+import utils.FileUtils;
+import utils.MappedDataBuffer;
+
+// Decoded rasters kept on disk as raw samples behind a one-page header, keyed by path, size and
+// modification time. Hits are memory-mapped, so reopening a large photo skips the decode.
+public class PixelCache {
+    public static final String DIRECTORY_NAME = "pixels";
+    public static final String SIZE_PROPERTY = "photoviewer.pixelCacheMB";
+    private static final int MAGIC = 0x50565058;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4096;
+    private static final String SUFFIX = ".px";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int STORE_CHUNK_BYTES = 1 << 20;
+    private static PixelCache shared;
+
+    private final File directory;
+    private final long capacityBytes;
+    // File name to size, least recently used first.
+    private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "pixel-cache-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public PixelCache(File directory, long capacityBytes) {
+        this.directory = directory;
+        this.capacityBytes = capacityBytes;
+        if (isEnabled()) {
+            index();
+        }
+    }
+
+    public static synchronized PixelCache shared() {
+        if (shared == null) {
+            long megabytes = Long.getLong(SIZE_PROPERTY, Constants.PIXEL_CACHE_MB);
+            shared = new PixelCache(new File(FileUtils.appDataDirectory(), DIRECTORY_NAME), megabytes << 20);
+        }
+        return shared;
+    }
+
+    public boolean isEnabled() {
+        return capacityBytes > 0;
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    // Only the byte-interleaved layouts ImageIO decodes into are stored; no transform edits those
+    // in place, so a queued write never sees half-changed pixels.
+    public static boolean isCacheable(BufferedImage image) {
+        if (image == null || image.getRaster().getParent() != null
+                || (long) image.getWidth() * image.getHeight() < Constants.PIXEL_CACHE_MIN_PIXELS) {
+            return false;
+        }
+        int type = image.getType();
+        if (type != BufferedImage.TYPE_3BYTE_BGR && type != BufferedImage.TYPE_4BYTE_ABGR
+                && type != BufferedImage.TYPE_BYTE_GRAY) {
+            return false;
+        }
+        long samples = (long) image.getWidth() * image.getHeight() * image.getRaster().getNumBands();
+        return image.getRaster().getDataBuffer().getSize() == samples;
+    }
+
+    // Decodes through the cache: a hit is copied to the heap in one bulk read, a miss is decoded
+    // and stored in the background.
+    public BufferedImage read(File source) throws IOException {
+        BufferedImage mapped = map(source);
+        if (mapped != null) {
+            return toHeap(mapped);
+        }
+        BufferedImage decoded = ImageIO.read(source);
+        storeAsync(source, decoded);
+        return decoded;
+    }
+
+    // Zero-copy view of a cached raster, or null on a miss. Pixels page in from the file as they
+    // are drawn; the mapping outlives the channel and is released once the image is unreachable.
+    // An entry that cannot be read back, truncated or with a damaged header, is dropped as a miss.
+    public BufferedImage map(File source) {
+        if (!isEnabled()) {
+            return null;
+        }
+        String path = source.getAbsolutePath();
+        long length = source.length();
+        long modified = source.lastModified();
+        String name = nameFor(path, length, modified);
+        synchronized (this) {
+            if (entries.get(name) == null) {
+                return null;
+            }
+        }
+        File file = new File(directory, name);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // Keep reading until the header page is complete.
+            }
+            if (header.hasRemaining()) {
+                remove(name);
+                return null;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(header.array()));
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                remove(name);
+                return null;
+            }
+            int type = in.readInt();
+            int width = in.readInt();
+            int height = in.readInt();
+            if (in.readLong() != length || in.readLong() != modified || !in.readUTF().equals(path)) {
+                return null;
+            }
+            BufferedImage template = new BufferedImage(1, 1, type);
+            SampleModel sampleModel = template.getSampleModel().createCompatibleSampleModel(width, height);
+            long samples = (long) width * height * sampleModel.getNumBands();
+            if (channel.size() < HEADER_BYTES + samples) {
+                remove(name);
+                return null;
+            }
+            MappedByteBuffer pixels = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, samples);
+            file.setLastModified(System.currentTimeMillis());
+            WritableRaster raster = Raster.createWritableRaster(sampleModel, new MappedDataBuffer(pixels), null);
+            ColorModel colorModel = template.getColorModel();
+            return new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null);
+        } catch (IOException | RuntimeException e) {
+            remove(name);
+            return null;
+        }
+    }
+
+    // Drawing through a mapped buffer takes the generic per-pixel path, so a displayed image is
+    // moved to an ordinary heap raster once it is up.
+    public static BufferedImage toHeap(BufferedImage mapped) {
+        WritableRaster raster = Raster.createWritableRaster(mapped.getSampleModel(), null);
+        ((MappedDataBuffer) mapped.getRaster().getDataBuffer()).copyTo((DataBufferByte) raster.getDataBuffer());
+        return new BufferedImage(mapped.getColorModel(), raster, mapped.isAlphaPremultiplied(), null);
+    }
+
+    public void storeAsync(File source, BufferedImage image) {
+        if (!isEnabled() || !isCacheable(image)) {
+            return;
+        }
+        String path = source.getAbsolutePath();
+        long length = source.length();
+        long modified = source.lastModified();
+        writer.execute(() -> {
+            try {
+                store(path, length, modified, image);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private void store(String path, long length, long modified, BufferedImage image) throws IOException {
+        Raster raster = image.getRaster();
+        long bytes = HEADER_BYTES + (long) image.getWidth() * image.getHeight() * raster.getNumBands();
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(headerBytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(image.getType());
+            out.writeInt(image.getWidth());
+            out.writeInt(image.getHeight());
+            out.writeLong(length);
+            out.writeLong(modified);
+            out.writeUTF(path);
+        }
+        if (bytes > capacityBytes || headerBytes.size() > HEADER_BYTES) {
+            return;
+        }
+        String name = nameFor(path, length, modified);
+        File temporary = new File(directory, name + TEMPORARY_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, ByteBuffer.wrap(headerBytes.toByteArray()), 0);
+            writeSamples(channel, raster, HEADER_BYTES);
+        }
+        FileUtils.replace(temporary, new File(directory, name));
+        synchronized (this) {
+            Long previous = entries.put(name, bytes);
+            totalBytes += bytes - (previous == null ? 0 : previous);
+            trim();
+        }
+    }
+
+    // Rows are copied out through getDataElements, which leaves the displayed image accelerated,
+    // and put back in the raster's own byte order so the mapped view can use the same layout.
+    private static void writeSamples(FileChannel channel, Raster raster, long position) throws IOException {
+        int width = raster.getWidth();
+        int bands = raster.getNumBands();
+        int[] offsets = ((ComponentSampleModel) raster.getSampleModel()).getBandOffsets();
+        int rowBytes = width * bands;
+        int rowsPerChunk = Math.max(1, STORE_CHUNK_BYTES / rowBytes);
+        byte[] elements = new byte[rowsPerChunk * rowBytes];
+        byte[] chunk = new byte[elements.length];
+        for (int y = 0; y < raster.getHeight(); y += rowsPerChunk) {
+            int rows = Math.min(rowsPerChunk, raster.getHeight() - y);
+            raster.getDataElements(0, y, width, rows, elements);
+            int length = rows * rowBytes;
+            for (int i = 0; i < length; i += bands) {
+                for (int band = 0; band < bands; band++) {
+                    chunk[i + offsets[band]] = elements[i + band];
+                }
+            }
+            writeFully(channel, ByteBuffer.wrap(chunk, 0, length), position);
+            position += length;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    // Files already mapped stay readable after deletion on POSIX systems; where the platform
+    // refuses, the file is picked up and trimmed again on the next start.
+    private void trim() {
+        for (Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+                it.hasNext() && totalBytes > capacityBytes; ) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.getValue();
+            new File(directory, eldest.getKey()).delete();
+        }
+    }
+
+    private synchronized void remove(String name) {
+        Long bytes = entries.remove(name);
+        if (bytes != null) {
+            totalBytes -= bytes;
+        }
+        new File(directory, name).delete();
+    }
+
+    // Modification times record use across runs, so the oldest file is the least recently used.
+    private synchronized void index() {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (file.getName().endsWith(TEMPORARY_SUFFIX)) {
+                file.delete();
+            } else if (file.getName().endsWith(SUFFIX)) {
+                entries.put(file.getName(), file.length());
+                totalBytes += file.length();
+            }
+        }
+        trim();
+    }
+
+    // 64-bit FNV-1a of the identity; the header holds the full identity to rule out collisions.
+    private static String nameFor(String path, long length, long modified) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : (path + '\0' + length + '\0' + modified).getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return String.format(Locale.ROOT, "%016x", hash) + SUFFIX;
+    }
+}
@@ -1,13 +1,25 @@
 package model;
 
 import java.awt.*;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
 import java.util.ArrayList;
 import java.util.List;
+import interfaces.IStroke;
+import utils.MemoryAccountant;
 
-public class Stroke {
+public class Stroke implements IStroke {
+    // Null once the stroke is compacted; the points then live in the shared arena until edited.
     private List<Point> points;
+    private StrokeArena.Block encoded;
     private Color color;
     private float strokeWidth;
+    private Path2D.Float shape;
+    private Rectangle bounds;
+    private long sumX;
+    private long sumY;
+    private int translateX;
+    private int translateY;
     
     public Stroke(Color color, float strokeWidth) {
         this.points = new ArrayList<>();
@@ -15,12 +27,36 @@ public class Stroke {
         this.strokeWidth = strokeWidth;
     }
 
+    // A translated copy; the stroke itself keeps its points and pending translation.
     public List<Point> getPoints() {
-        return new ArrayList<>(points);
+        if (points == null) {
+            int[] coordinates = coordinates();
+            List<Point> decoded = new ArrayList<>(coordinates.length / 2);
+            for (int i = 0; i < coordinates.length; i += 2) {
+                decoded.add(new Point(coordinates[i] + translateX, coordinates[i + 1] + translateY));
+            }
+            return decoded;
+        }
+        List<Point> translated = new ArrayList<>(points.size());
+        for (Point point : points) {
+            translated.add(new Point(point.x + translateX, point.y + translateY));
+        }
+        return translated;
     }
 
     public void setPoints(List<Point> points) {
+        releaseEncoded();
         this.points = new ArrayList<>(points);
+        this.shape = null;
+        this.bounds = null;
+        this.translateX = 0;
+        this.translateY = 0;
+        sumX = 0;
+        sumY = 0;
+        for (Point point : this.points) {
+            sumX += point.x;
+            sumY += point.y;
+        }
     }
 
     public Color getColor() {
@@ -40,37 +76,258 @@ public class Stroke {
     }
 
     public boolean isEmpty() {
-        return points.isEmpty();
+        return getPointCount() == 0;
+    }
+
+    public int getPointCount() {
+        return points != null ? points.size() : encoded.getCount();
+    }
+
+    public boolean isCompacted() {
+        return points == null;
+    }
+
+    public long getMemoryBytes() {
+        return points != null ? MemoryAccountant.pointBytes(points.size()) : encoded.getLength();
+    }
+
+    // Moves a finished stroke into the shared arena; it is decoded again only if it is edited.
+    public void compact() {
+        if (points == null || points.isEmpty()) {
+            return;
+        }
+        getBaseBounds();
+        int[] coordinates = coordinates();
+        encoded = StrokeArena.shared().store(this, coordinates, points.size());
+        points = null;
+        shape = null;
+    }
+
+    private void decode() {
+        if (points != null) {
+            return;
+        }
+        int[] coordinates = coordinates();
+        List<Point> decoded = new ArrayList<>(coordinates.length / 2);
+        for (int i = 0; i < coordinates.length; i += 2) {
+            decoded.add(new Point(coordinates[i], coordinates[i + 1]));
+        }
+        releaseEncoded();
+        points = decoded;
+    }
+
+    private void releaseEncoded() {
+        if (encoded != null) {
+            StrokeArena.shared().release(encoded);
+            StrokeShapeCache.shared().release(encoded);
+            encoded = null;
+        }
+    }
+
+    public int[] getCoordinates() {
+        int[] coordinates = coordinates();
+        if (translateX != 0 || translateY != 0) {
+            for (int i = 0; i < coordinates.length; i += 2) {
+                coordinates[i] += translateX;
+                coordinates[i + 1] += translateY;
+            }
+        }
+        return coordinates;
+    }
+
+    // Replaces the points with already translated x, y pairs, keeping the stroke compacted if it was.
+    public void setCoordinates(int[] coordinates) {
+        boolean compacted = points == null;
+        List<Point> replacement = new ArrayList<>(coordinates.length / 2);
+        for (int i = 0; i < coordinates.length; i += 2) {
+            replacement.add(new Point(coordinates[i], coordinates[i + 1]));
+        }
+        setPoints(replacement);
+        if (compacted) {
+            compact();
+        }
+    }
+
+    // Frees the arena block and cached path of a stroke that has left the model for good; the
+    // stroke is empty afterwards.
+    public void discard() {
+        setPoints(new ArrayList<>());
+    }
+
+    // Untranslated x, y pairs, read from whichever representation the stroke currently has.
+    private int[] coordinates() {
+        if (points == null) {
+            return StrokeArena.shared().decode(encoded);
+        }
+        int[] coordinates = new int[points.size() * 2];
+        for (int i = 0; i < points.size(); i++) {
+            Point point = points.get(i);
+            coordinates[i * 2] = point.x;
+            coordinates[i * 2 + 1] = point.y;
+        }
+        return coordinates;
     }
     
     public void addPoint(int x, int y) {
+        decode();
+        x -= translateX;
+        y -= translateY;
         points.add(new Point(x, y));
+        sumX += x;
+        sumY += y;
+        if (bounds != null) {
+            bounds.add(x, y);
+        }
+        if (shape == null) {
+            return;
+        } else if (points.size() == 1) {
+            shape.moveTo(x, y);
+        } else {
+            shape.lineTo(x, y);
+        }
     }
 
     public void addPoint(Point point) {
-        points.add(new Point(point));
+        addPoint(point.x, point.y);
+    }
+
+    // The path is kept in untranslated coordinates; renderers apply getTranslateX/Y as a transform.
+    public Shape getShape() {
+        if (points == null) {
+            return StrokeShapeCache.shared().shapeFor(encoded, StrokeArena.shared());
+        }
+        if (shape == null) {
+            Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, Math.max(2, points.size()));
+            for (int i = 0; i < points.size(); i++) {
+                Point point = points.get(i);
+                if (i == 0) {
+                    path.moveTo(point.x, point.y);
+                } else {
+                    path.lineTo(point.x, point.y);
+                }
+            }
+            shape = path;
+        }
+        return shape;
+    }
+
+    public int getTranslateX() {
+        return translateX;
+    }
+
+    public int getTranslateY() {
+        return translateY;
+    }
+
+    public Rectangle getBounds() {
+        if (isEmpty()) {
+            return new Rectangle();
+        }
+        Rectangle translated = new Rectangle(getBaseBounds());
+        translated.translate(translateX, translateY);
+        return translated;
+    }
+
+    private Rectangle getBaseBounds() {
+        if (bounds == null) {
+            int[] coordinates = coordinates();
+            Rectangle base = new Rectangle(coordinates[0], coordinates[1], 0, 0);
+            for (int i = 2; i < coordinates.length; i += 2) {
+                base.add(coordinates[i], coordinates[i + 1]);
+            }
+            bounds = base;
+        }
+        return bounds;
+    }
+    
+    // Returns null when the eraser misses, otherwise the pieces left after removing every segment
+    // within reach of the eraser's path from one position to the next (possibly none).
+    public List<Stroke> eraseWithin(double fromX, double fromY, double toX, double toY, double radius) {
+        if (isEmpty()) {
+            return null;
+        }
+        double reach = radius + strokeWidth / 2;
+        Rectangle base = getBaseBounds();
+        double x1 = fromX - translateX;
+        double y1 = fromY - translateY;
+        double x2 = toX - translateX;
+        double y2 = toY - translateY;
+        if (Math.max(x1, x2) + reach < base.x || Math.min(x1, x2) - reach > base.x + base.width
+                || Math.max(y1, y2) + reach < base.y || Math.min(y1, y2) - reach > base.y + base.height) {
+            return null;
+        }
+        double reachSquared = reach * reach;
+        int[] coordinates = coordinates();
+        int count = coordinates.length / 2;
+        if (count == 1) {
+            return Line2D.ptSegDistSq(x1, y1, x2, y2, coordinates[0], coordinates[1]) <= reachSquared
+                    ? new ArrayList<>() : null;
+        }
+        List<Stroke> pieces = null;
+        int pieceStart = 0;
+        for (int i = 0; i + 1 < count; i++) {
+            int j = i * 2;
+            if (segmentDistanceSq(coordinates[j], coordinates[j + 1], coordinates[j + 2], coordinates[j + 3],
+                    x1, y1, x2, y2) <= reachSquared) {
+                if (pieces == null) {
+                    pieces = new ArrayList<>();
+                }
+                addPiece(pieces, coordinates, pieceStart, i);
+                pieceStart = i + 1;
+            }
+        }
+        if (pieces != null) {
+            addPiece(pieces, coordinates, pieceStart, count - 1);
+        }
+        return pieces;
+    }
+
+    // Two segments that do not cross are closest at one of their four endpoints.
+    private static double segmentDistanceSq(double ax, double ay, double bx, double by,
+                                            double cx, double cy, double dx, double dy) {
+        if (Line2D.linesIntersect(ax, ay, bx, by, cx, cy, dx, dy)) {
+            return 0;
+        }
+        return Math.min(
+                Math.min(Line2D.ptSegDistSq(ax, ay, bx, by, cx, cy), Line2D.ptSegDistSq(ax, ay, bx, by, dx, dy)),
+                Math.min(Line2D.ptSegDistSq(cx, cy, dx, dy, ax, ay), Line2D.ptSegDistSq(cx, cy, dx, dy, bx, by)));
+    }
+
+    private void addPiece(List<Stroke> pieces, int[] coordinates, int first, int last) {
+        if (last <= first) {
+            return;
+        }
+        Stroke piece = new Stroke(color, strokeWidth);
+        for (int i = first; i <= last; i++) {
+            piece.addPoint(coordinates[i * 2] + translateX, coordinates[i * 2 + 1] + translateY);
+        }
+        pieces.add(piece);
+    }
+
+    public boolean isInside(Shape region) {
+        int[] coordinates = coordinates();
+        for (int i = 0; i < coordinates.length; i += 2) {
+            if (!region.contains(coordinates[i] + translateX, coordinates[i + 1] + translateY)) {
+                return false;
+            }
+        }
+        return coordinates.length > 0;
     }
     
     public Point getCenter() {
-        if (points.isEmpty()) {
+        if (isEmpty()) {
             return new Point(0, 0);
         }
-        
-        int sumX = 0, sumY = 0;
-        for (Point point : points) {
-            sumX += point.x;
-            sumY += point.y;
-        }
-        return new Point(sumX / points.size(), sumY / points.size());
+        int count = getPointCount();
+        return new Point((int) ((sumX + (long) translateX * count) / count),
+                (int) ((sumY + (long) translateY * count) / count));
     }
 
 
     
     public void moveBy(int dx, int dy) {
-        for (Point point : points) {
-            point.x += dx;
-            point.y += dy;
-        }
+        translateX += dx;
+        translateY += dy;
     }
 
 }
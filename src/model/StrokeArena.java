@@ -0,0 +1,135 @@
+package model;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+public class StrokeArena {
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static StrokeArena shared;
+
+    public static final class Block {
+        private final WeakReference<Object> owner;
+        private final int count;
+        private int offset;
+        private int length;
+        private boolean released;
+
+        Block(Object owner, int count) {
+            this.owner = new WeakReference<>(owner);
+            this.count = count;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getLength() {
+            return length;
+        }
+    }
+
+    private byte[] data = new byte[INITIAL_CAPACITY];
+    private int size;
+    private List<Block> blocks = new ArrayList<>();
+
+    public static synchronized StrokeArena shared() {
+        if (shared == null) {
+            shared = new StrokeArena();
+        }
+        return shared;
+    }
+
+    // Points are written as zig-zag varints: the first absolute, every later one as the delta from
+    // its predecessor, so ordinary freehand samples take one byte per axis.
+    public synchronized Block store(Object owner, int[] coordinates, int count) {
+        ensureCapacity(count * 10);
+        Block block = new Block(owner, count);
+        block.offset = size;
+        int previousX = 0;
+        int previousY = 0;
+        for (int i = 0; i < count; i++) {
+            int x = coordinates[i * 2];
+            int y = coordinates[i * 2 + 1];
+            writeVarInt(zigZag(x - previousX));
+            writeVarInt(zigZag(y - previousY));
+            previousX = x;
+            previousY = y;
+        }
+        block.length = size - block.offset;
+        blocks.add(block);
+        return block;
+    }
+
+    public synchronized int[] decode(Block block) {
+        int[] coordinates = new int[block.count * 2];
+        int position = block.offset;
+        int value = 0;
+        int shift = 0;
+        int index = 0;
+        int previous = 0;
+        while (index < coordinates.length) {
+            byte b = data[position++];
+            value |= (b & 0x7F) << shift;
+            if (b < 0) {
+                shift += 7;
+                continue;
+            }
+            // Coordinates alternate x, y, so each axis accumulates against the value two slots back.
+            previous = index >= 2 ? coordinates[index - 2] : 0;
+            coordinates[index++] = previous + ((value >>> 1) ^ -(value & 1));
+            value = 0;
+            shift = 0;
+        }
+        return coordinates;
+    }
+
+    public synchronized void release(Block block) {
+        block.released = true;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra <= data.length) {
+            return;
+        }
+        compact();
+        if (size + extra > data.length) {
+            byte[] grown = new byte[Math.max(data.length * 2, size + extra)];
+            System.arraycopy(data, 0, grown, 0, size);
+            data = grown;
+        }
+    }
+
+    // Blocks stay in offset order, so sliding the survivors down never overwrites unread bytes.
+    private void compact() {
+        List<Block> live = new ArrayList<>(blocks.size());
+        int write = 0;
+        for (Block block : blocks) {
+            if (block.released || block.owner.get() == null) {
+                continue;
+            }
+            System.arraycopy(data, block.offset, data, write, block.length);
+            block.offset = write;
+            write += block.length;
+            live.add(block);
+        }
+        blocks = live;
+        size = write;
+    }
+
+    private void writeVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            data[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[size++] = (byte) value;
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+}
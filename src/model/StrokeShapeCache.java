@@ -0,0 +1,119 @@
+package model;
+
+import java.awt.geom.Path2D;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import utils.MemoryAccountant;
+
+public class StrokeShapeCache implements MemoryAccountant.Evictable {
+    private static final long PATH_OVERHEAD_BYTES = 64;
+    private static final long SEGMENT_BYTES = 9;
+    private static StrokeShapeCache shared;
+
+    private final Map<StrokeArena.Block, Slot> entries = new WeakHashMap<>();
+    private final ReferenceQueue<StrokeArena.Block> collected = new ReferenceQueue<>();
+    private final MemoryAccountant memoryAccountant;
+    private long accountedBytes;
+
+    // Remembers what a block's path was accounted at, so the bytes are returned once the arena
+    // drops a block whose stroke went away without releasing it.
+    private static final class Slot extends WeakReference<StrokeArena.Block> {
+        final Path2D.Float path;
+        long bytes;
+
+        Slot(StrokeArena.Block block, Path2D.Float path, long bytes, ReferenceQueue<StrokeArena.Block> queue) {
+            super(block, queue);
+            this.path = path;
+            this.bytes = bytes;
+        }
+    }
+
+    public StrokeShapeCache(MemoryAccountant memoryAccountant) {
+        this.memoryAccountant = memoryAccountant;
+        memoryAccountant.register(MemoryAccountant.Category.LAYOUT_CACHE, this);
+    }
+
+    public static synchronized StrokeShapeCache shared() {
+        if (shared == null) {
+            shared = new StrokeShapeCache(MemoryAccountant.shared());
+        }
+        return shared;
+    }
+
+    // Encoded blocks are immutable, so a block is a safe key: editing a stroke gives it a new one.
+    public Path2D.Float shapeFor(StrokeArena.Block block, StrokeArena arena) {
+        synchronized (this) {
+            Slot cached = entries.get(block);
+            if (cached != null) {
+                return cached.path;
+            }
+        }
+        int[] coordinates = arena.decode(block);
+        Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, Math.max(2, block.getCount()));
+        for (int i = 0; i < block.getCount(); i++) {
+            if (i == 0) {
+                path.moveTo(coordinates[0], coordinates[1]);
+            } else {
+                path.lineTo(coordinates[i * 2], coordinates[i * 2 + 1]);
+            }
+        }
+        long bytes = bytesFor(block);
+        long delta;
+        synchronized (this) {
+            Slot existing = entries.get(block);
+            if (existing != null) {
+                return existing.path;
+            }
+            entries.put(block, new Slot(block, path, bytes, collected));
+            delta = bytes - releaseCollected();
+            accountedBytes += delta;
+        }
+        memoryAccountant.add(MemoryAccountant.Category.LAYOUT_CACHE, delta);
+        return path;
+    }
+
+    // A released block stays in the arena until it compacts, so its path is dropped right away
+    // rather than waiting for the weak key to clear.
+    public void release(StrokeArena.Block block) {
+        long freed;
+        synchronized (this) {
+            Slot slot = entries.remove(block);
+            freed = releaseCollected();
+            if (slot != null) {
+                freed += slot.bytes;
+                slot.bytes = 0;
+            }
+            accountedBytes -= freed;
+        }
+        memoryAccountant.release(MemoryAccountant.Category.LAYOUT_CACHE, freed);
+    }
+
+    private long releaseCollected() {
+        long bytes = 0;
+        for (Reference<? extends StrokeArena.Block> reference; (reference = collected.poll()) != null; ) {
+            Slot slot = (Slot) reference;
+            bytes += slot.bytes;
+            slot.bytes = 0;
+        }
+        return bytes;
+    }
+
+    private static long bytesFor(StrokeArena.Block block) {
+        return PATH_OVERHEAD_BYTES + SEGMENT_BYTES * block.getCount();
+    }
+
+    @Override
+    public synchronized long evict(long bytesToFree) {
+        long freed = accountedBytes;
+        for (Slot slot : entries.values()) {
+            slot.bytes = 0;
+        }
+        entries.clear();
+        accountedBytes = 0;
+        memoryAccountant.release(MemoryAccountant.Category.LAYOUT_CACHE, freed);
+        return freed;
+    }
+}
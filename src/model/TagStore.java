@@ -0,0 +1,213 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import utils.FileUtils;
+import utils.RoaringBitmap;
+
+public class TagStore {
+    public enum Match { ALL, ANY, NONE }
+
+    public static final String FILE_NAME = "tags.bin";
+    private static final int MAGIC = 0x50565447;
+    private static final int VERSION = 2;
+    private static final long SAVE_DELAY_MILLIS = 1000;
+    private static TagStore shared;
+
+    private final File file;
+    private final List<String> paths = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final Map<String, RoaringBitmap> tags = new TreeMap<>();
+    private final RoaringBitmap allPhotos = new RoaringBitmap();
+    private final ScheduledExecutorService saver;
+    private ScheduledFuture<?> pendingSave;
+    private boolean dirty;
+
+    public TagStore(File file) {
+        this.file = file;
+        this.saver = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "tag-store-saver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (file.isFile()) {
+            try {
+                load();
+            } catch (IOException e) {
+                e.printStackTrace();
+                paths.clear();
+                ids.clear();
+                tags.clear();
+                allPhotos.clear();
+            }
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "tag-store-flush"));
+    }
+
+    public static synchronized TagStore shared() {
+        if (shared == null) {
+            shared = new TagStore(new File(FileUtils.appDataDirectory(), FILE_NAME));
+        }
+        return shared;
+    }
+
+    public synchronized int idFor(File photo) {
+        String path = photo.getAbsolutePath();
+        Integer id = ids.get(path);
+        if (id == null) {
+            id = paths.size();
+            paths.add(path);
+            ids.put(path, id);
+            allPhotos.add(id);
+            scheduleSave();
+        } else if (!allPhotos.contains(id)) {
+            allPhotos.add(id);
+            scheduleSave();
+        }
+        return id;
+    }
+
+    public synchronized String pathOf(int id) {
+        return paths.get(id);
+    }
+
+    public synchronized int size() {
+        return paths.size();
+    }
+
+    public synchronized void retire(File photo) {
+        Integer id = ids.get(photo.getAbsolutePath());
+        if (id == null || !allPhotos.contains(id)) {
+            return;
+        }
+        allPhotos.remove(id);
+        for (RoaringBitmap bitmap : tags.values()) {
+            bitmap.remove(id);
+        }
+        scheduleSave();
+    }
+
+    public synchronized void setTag(int id, String tag, boolean tagged) {
+        RoaringBitmap bitmap = tags.computeIfAbsent(tag, t -> new RoaringBitmap());
+        if (tagged == bitmap.contains(id)) {
+            return;
+        }
+        if (tagged) {
+            bitmap.add(id);
+        } else {
+            bitmap.remove(id);
+        }
+        scheduleSave();
+    }
+
+    public synchronized Set<String> tagsOf(int id) {
+        Set<String> result = new TreeSet<>();
+        for (Map.Entry<String, RoaringBitmap> entry : tags.entrySet()) {
+            if (entry.getValue().contains(id)) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    public synchronized RoaringBitmap query(Collection<String> selected, Match match) {
+        if (selected.isEmpty()) {
+            return allPhotos.copy();
+        }
+        RoaringBitmap result = null;
+        for (String tag : selected) {
+            RoaringBitmap bitmap = tags.getOrDefault(tag, new RoaringBitmap());
+            if (result == null) {
+                result = bitmap.copy();
+            } else if (match == Match.ALL) {
+                result = RoaringBitmap.and(result, bitmap);
+            } else {
+                result = RoaringBitmap.or(result, bitmap);
+            }
+        }
+        return match == Match.NONE ? RoaringBitmap.andNot(allPhotos, result) : result;
+    }
+
+    private void scheduleSave() {
+        dirty = true;
+        if (pendingSave == null || pendingSave.isDone()) {
+            pendingSave = saver.schedule(this::flush, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void flush() {
+        if (!dirty) {
+            return;
+        }
+        try {
+            save();
+            dirty = false;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void save() throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(paths.size());
+            for (String path : paths) {
+                out.writeUTF(path);
+            }
+            allPhotos.write(out);
+            out.writeInt(tags.size());
+            for (Map.Entry<String, RoaringBitmap> entry : tags.entrySet()) {
+                out.writeUTF(entry.getKey());
+                entry.getValue().write(out);
+            }
+        }
+        FileUtils.replace(temporary, file);
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int version = in.readInt() == MAGIC ? in.readShort() : -1;
+            if (version < 1 || version > VERSION) {
+                throw new IOException(file + " is not a version " + VERSION + " tag store");
+            }
+            int pathCount = in.readInt();
+            for (int id = 0; id < pathCount; id++) {
+                String path = in.readUTF();
+                paths.add(path);
+                ids.put(path, id);
+            }
+            if (version >= 2) {
+                allPhotos.addAll(RoaringBitmap.read(in));
+            } else {
+                for (int id = 0; id < pathCount; id++) {
+                    allPhotos.add(id);
+                }
+            }
+            int tagCount = in.readInt();
+            for (int i = 0; i < tagCount; i++) {
+                String tag = in.readUTF();
+                tags.put(tag, RoaringBitmap.read(in));
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.SwingUtilities;
+import interfaces.IPhotoModel;
+import utils.MemoryAccountant;
+
+public class Workspace implements MemoryAccountant.Evictable {
+    private final List<IPhotoModel> documents = new ArrayList<>();
+    private final LinkedHashMap<IPhotoModel, Boolean> recentlyUsed = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxDecodedDocuments;
+    private int activeIndex = -1;
+    private final AtomicBoolean evictionPosted = new AtomicBoolean();
+
+    public Workspace(int maxDecodedDocuments) {
+        this.maxDecodedDocuments = maxDecodedDocuments;
+        MemoryAccountant.shared().register(MemoryAccountant.Category.PREFETCHED_IMAGES, this);
+    }
+
+    public synchronized int add(IPhotoModel document) {
+        document.setImageCategory(MemoryAccountant.Category.PREFETCHED_IMAGES);
+        documents.add(document);
+        return documents.size() - 1;
+    }
+
+    public synchronized IPhotoModel activate(int index) {
+        IPhotoModel previous = getActive();
+        IPhotoModel next = documents.get(index);
+        activeIndex = index;
+        if (previous != null && previous != next) {
+            previous.setImageCategory(MemoryAccountant.Category.PREFETCHED_IMAGES);
+        }
+        next.setImageCategory(MemoryAccountant.Category.DECODED_IMAGES);
+        recentlyUsed.put(next, Boolean.TRUE);
+        trim();
+        return next;
+    }
+
+    public synchronized IPhotoModel close(int index) {
+        IPhotoModel document = documents.remove(index);
+        recentlyUsed.remove(document);
+        document.clearAll();
+        if (index < activeIndex) {
+            activeIndex--;
+        } else if (index == activeIndex) {
+            activeIndex = -1;
+        }
+        return document;
+    }
+
+    public synchronized IPhotoModel getActive() {
+        return activeIndex >= 0 ? documents.get(activeIndex) : null;
+    }
+
+    public synchronized int getActiveIndex() {
+        return activeIndex;
+    }
+
+    public synchronized IPhotoModel get(int index) {
+        return documents.get(index);
+    }
+
+    public synchronized int indexOf(IPhotoModel document) {
+        return documents.indexOf(document);
+    }
+
+    public synchronized int size() {
+        return documents.size();
+    }
+
+    // Keeps the most recently used inactive documents decoded; older ones re-decode on activation.
+    public synchronized void trim() {
+        IPhotoModel active = getActive();
+        List<IPhotoModel> decoded = new ArrayList<>();
+        for (IPhotoModel document : recentlyUsed.keySet()) {
+            if (document != active && document.hasImage()) {
+                decoded.add(document);
+            }
+        }
+        for (int i = 0; i < decoded.size() - maxDecodedDocuments; i++) {
+            decoded.get(i).releaseImage();
+        }
+    }
+
+    // Documents are only ever changed on the event thread. Allocations on export tiles or workers
+    // can trigger eviction too, so from there it is posted and the budget rechecked on the EDT.
+    @Override
+    public long evict(long bytesToFree) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            if (evictionPosted.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(() -> {
+                    evictionPosted.set(false);
+                    MemoryAccountant.shared().enforceBudget();
+                });
+            }
+            return 0;
+        }
+        return evictDocuments(bytesToFree);
+    }
+
+    private synchronized long evictDocuments(long bytesToFree) {
+        IPhotoModel active = getActive();
+        long freed = 0;
+        // Compacting crop views frees their parent rasters without dropping any document. The active
+        // one may be mid-paint or mid-export, so only its export materializes it.
+        for (Iterator<IPhotoModel> it = documents.iterator(); it.hasNext() && freed < bytesToFree; ) {
+            IPhotoModel document = it.next();
+            if (document != active) {
+                freed += document.materializeCrop();
+            }
+        }
+        for (Iterator<IPhotoModel> it = recentlyUsed.keySet().iterator(); it.hasNext() && freed < bytesToFree; ) {
+            IPhotoModel document = it.next();
+            if (document != active) {
+                freed += document.releaseImage();
+            }
+        }
+        return freed;
+    }
+}
@@ -9,19 +9,39 @@ public class Constants {
     
     public static final int TEXT_MARGIN = 10;
     public static final float STROKE_WIDTH = 2.0f;
+    public static final int ERASER_RADIUS = 10;
     
     public static final Color STROKE_COLOR = Color.BLACK;
     public static final Color WHITE = Color.WHITE;
     public static final Color LIGHT_GRAY = Color.LIGHT_GRAY;
     public static final Color CHECKER_LIGHT = new Color(220, 220, 220);
     public static final Color CHECKER_DARK = new Color(200, 200, 200);
+    public static final Color SELECTION_COLOR = new Color(30, 120, 255);
+    public static final Color HUD_BACKGROUND = new Color(0, 0, 0, 170);
     
     public static final int CHECKERBOARD_SIZE = 20;
     public static final int DEFAULT_WIDTH = 400;
     public static final int DEFAULT_HEIGHT = 300;
     public static final int BORDER_STROKE_WIDTH = 2;
+    public static final int EXPORT_TILE_SIZE = 512;
+    public static final double VECTOR_SIMPLIFY_TOLERANCE = 0.5;
+    public static final int HISTOGRAM_WIDTH = 128;
+    public static final int HISTOGRAM_HEIGHT = 28;
+    public static final double HISTOGRAM_CLIP_WARNING = 0.01;
+    public static final double AUTO_LEVELS_CLIP = 0.005;
+    public static final int HUD_REFRESH_MILLIS = 1000;
     
     public static final String WINDOW_TITLE = "Photo Viewer";
+    public static final String LOADING_TEXT = "Loading...";
+    public static final String UNTITLED_DOCUMENT = "Untitled";
+    public static final int MAX_DECODED_DOCUMENTS = 3;
+    public static final String APP_DIRECTORY_NAME = ".photoviewer";
+    public static final String IMAGE_DIRECTORY = "img";
+    public static final long PIXEL_CACHE_MB = 2048;
+    public static final long PIXEL_CACHE_MIN_PIXELS = 8_000_000;
+    public static final String[] CATEGORIES = {"People", "Foods"};
+    public static final String PHOTO_CARD = "photo";
+    public static final String BROWSE_CARD = "browse";
     public static final int WINDOW_WIDTH = 800;
     public static final int WINDOW_HEIGHT = 600;
 }
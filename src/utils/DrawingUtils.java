@@ -38,9 +38,7 @@ public class DrawingUtils {
     }
 
     public void drawStrokes(Graphics2D g2, List<Stroke> strokes) {
-        for (Stroke stroke : strokes) {
-            strokeRenderer.drawStroke(g2, stroke);
-        }
+        strokeRenderer.drawStrokes(g2, strokes);
     }
     
     public void drawAnnotations(Graphics2D g2, List<Annotation> annotations, BufferedImage image) {
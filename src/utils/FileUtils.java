@@ -0,0 +1,32 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+public class FileUtils {
+    public static final String HOME_PROPERTY = "photoviewer.home";
+
+    public static File appDataDirectory() {
+        String configured = System.getProperty(HOME_PROPERTY);
+        File directory = configured != null
+                ? new File(configured)
+                : new File(System.getProperty("user.home"), Constants.APP_DIRECTORY_NAME);
+        if (!directory.isDirectory()) {
+            directory.mkdirs();
+        }
+        return directory;
+    }
+
+    // Next to the target so replace() stays a rename within one file system.
+    public static File temporaryFor(File target) {
+        File absolute = target.getAbsoluteFile();
+        return new File(absolute.getParentFile(), "." + absolute.getName() + ".tmp");
+    }
+
+    public static void replace(File temporary, File target) throws IOException {
+        Files.move(temporary.toPath(), target.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,123 @@
+package utils;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class FontMetricsService {
+    public static final char FIRST_GLYPH = 32;
+    public static final char LAST_GLYPH = 126;
+    private static final FontMetricsService SHARED = new FontMetricsService();
+
+    private final Font[] plainFonts = new Font[4];
+    private final Font boldFont = new Font(Constants.FONT_NAME, Font.BOLD, Constants.FONT_SIZE_BOLD);
+    private final Map<Font, Metrics> metrics = new ConcurrentHashMap<>();
+
+    public static class Metrics {
+        private final FontMetrics fontMetrics;
+        private final int[] advances = new int[LAST_GLYPH - FIRST_GLYPH + 1];
+        private final boolean kerned;
+        private final int ascent;
+        private final int descent;
+        private final int leading;
+        private final int height;
+
+        Metrics(FontMetrics fontMetrics) {
+            this.fontMetrics = fontMetrics;
+            for (char c = FIRST_GLYPH; c <= LAST_GLYPH; c++) {
+                advances[c - FIRST_GLYPH] = fontMetrics.charWidth(c);
+            }
+            // Kerning and ligatures make advances context dependent, so those fonts measure through FontMetrics.
+            this.kerned = fontMetrics.getFont().hasLayoutAttributes();
+            this.ascent = fontMetrics.getAscent();
+            this.descent = fontMetrics.getDescent();
+            this.leading = fontMetrics.getLeading();
+            this.height = fontMetrics.getHeight();
+        }
+
+        public int charWidth(char c) {
+            if (c >= FIRST_GLYPH && c <= LAST_GLYPH) {
+                return advances[c - FIRST_GLYPH];
+            }
+            return fontMetrics.charWidth(c);
+        }
+
+        public int width(CharSequence text) {
+            return width(text, 0, text.length());
+        }
+
+        public int width(CharSequence text, int start, int end) {
+            if (kerned) {
+                return fontMetrics.stringWidth(text.subSequence(start, end).toString());
+            }
+            int width = 0;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (c < FIRST_GLYPH || c > LAST_GLYPH) {
+                    return fontMetrics.stringWidth(text.subSequence(start, end).toString());
+                }
+                width += advances[c - FIRST_GLYPH];
+            }
+            return width;
+        }
+
+        public int getAscent() {
+            return ascent;
+        }
+
+        public int getDescent() {
+            return descent;
+        }
+
+        public int getLeading() {
+            return leading;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getLineHeight() {
+            return ascent + descent + leading;
+        }
+
+        public FontMetrics getFontMetrics() {
+            return fontMetrics;
+        }
+    }
+
+    public static FontMetricsService shared() {
+        return SHARED;
+    }
+
+    public Font font(int style) {
+        int index = style & (Font.BOLD | Font.ITALIC);
+        Font font = plainFonts[index];
+        if (font == null) {
+            font = new Font(Constants.FONT_NAME, style, Constants.FONT_SIZE);
+            plainFonts[index] = font;
+        }
+        return font;
+    }
+
+    public Font boldFont() {
+        return boldFont;
+    }
+
+    public Metrics metricsFor(Font font) {
+        return metrics.computeIfAbsent(font, FontMetricsService::measure);
+    }
+
+    private static Metrics measure(Font font) {
+        BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = scratch.createGraphics();
+        try {
+            return new Metrics(g2.getFontMetrics(font));
+        } finally {
+            g2.dispose();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package utils;
+
+public final class Histogram {
+    public static final int RED = 0;
+    public static final int GREEN = 1;
+    public static final int BLUE = 2;
+    public static final int LUMA = 3;
+
+    private final int[][] bins;
+    private final long total;
+    private final boolean exact;
+
+    Histogram(int[][] bins, boolean exact) {
+        this.bins = bins;
+        this.exact = exact;
+        long count = 0;
+        for (int value : bins[LUMA]) {
+            count += value;
+        }
+        this.total = count;
+    }
+
+    public int count(int channel, int value) {
+        return bins[channel][value];
+    }
+
+    public int max(int channel) {
+        int max = 0;
+        for (int value : bins[channel]) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    // False while only a sample has been counted.
+    public boolean isExact() {
+        return exact;
+    }
+
+    public int percentile(int channel, double fraction) {
+        long target = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int value = 0; value < 256; value++) {
+            seen += bins[channel][value];
+            if (seen >= target && seen > 0) {
+                return value;
+            }
+        }
+        return 255;
+    }
+
+    // Share of pixels with the channel at the given extreme, e.g. clipped shadows at 0.
+    public double fractionAt(int channel, int value) {
+        return total == 0 ? 0 : bins[channel][value] / (double) total;
+    }
+
+    // Predicts the histogram after a lookup table without touching pixels; luma is approximated by
+    // passing it through the same table.
+    public Histogram mapped(int[] table) {
+        int[][] result = new int[4][256];
+        for (int channel = 0; channel < 4; channel++) {
+            for (int value = 0; value < 256; value++) {
+                result[channel][table[value]] += bins[channel][value];
+            }
+        }
+        return new Histogram(result, exact);
+    }
+
+    public ImageAdjustments autoLevels(ImageAdjustments adjustments, double clipFraction) {
+        int black = percentile(LUMA, clipFraction);
+        int white = percentile(LUMA, 1 - clipFraction);
+        if (white <= black) {
+            return adjustments;
+        }
+        return adjustments.withLevels(black, white);
+    }
+}
@@ -0,0 +1,95 @@
+package utils;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class ImageAdjuster {
+    private static final int BAND_ROWS = 64;
+
+    private final ForkJoinPool pool;
+
+    public ImageAdjuster() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ImageAdjuster(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public BufferedImage apply(BufferedImage source, ImageAdjustments adjustments) {
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage target = new BufferedImage(source.getWidth(), source.getHeight(), type);
+        pool.invoke(new Band(source, target, adjustments.lookupTable(), 0, source.getHeight()));
+        return target;
+    }
+
+    // Scales to fit inside the given size without enlarging; previews are adjusted on the result.
+    public BufferedImage downsample(BufferedImage source, int maxWidth, int maxHeight) {
+        double scale = Math.min(1, Math.min(maxWidth / (double) source.getWidth(),
+                maxHeight / (double) source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage scaled = new BufferedImage(width, height, type);
+        Graphics2D g2 = scaled.createGraphics();
+        try {
+            g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g2.dispose();
+        }
+        return scaled;
+    }
+
+    // Rows are copied through the raster rather than its backing array so the image stays
+    // eligible for accelerated drawing.
+    static int[] readRows(BufferedImage source, int firstRow, int rows, int[] pixels) {
+        int type = source.getType();
+        if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB) {
+            source.getRaster().getDataElements(0, firstRow, source.getWidth(), rows, pixels);
+        } else {
+            source.getRGB(0, firstRow, source.getWidth(), rows, pixels, 0, source.getWidth());
+        }
+        return pixels;
+    }
+
+    private static class Band extends RecursiveAction {
+        private final BufferedImage source;
+        private final BufferedImage target;
+        private final int[] table;
+        private final int firstRow;
+        private final int endRow;
+
+        Band(BufferedImage source, BufferedImage target, int[] table, int firstRow, int endRow) {
+            this.source = source;
+            this.target = target;
+            this.table = table;
+            this.firstRow = firstRow;
+            this.endRow = endRow;
+        }
+
+        @Override
+        protected void compute() {
+            if (endRow - firstRow > BAND_ROWS) {
+                int middle = (firstRow + endRow) >>> 1;
+                invokeAll(new Band(source, target, table, firstRow, middle),
+                        new Band(source, target, table, middle, endRow));
+                return;
+            }
+            int width = source.getWidth();
+            int rows = endRow - firstRow;
+            int[] pixels = readRows(source, firstRow, rows, new int[width * rows]);
+            for (int i = 0; i < pixels.length; i++) {
+                int pixel = pixels[i];
+                pixels[i] = (pixel & 0xFF000000)
+                        | table[(pixel >>> 16) & 0xFF] << 16
+                        | table[(pixel >>> 8) & 0xFF] << 8
+                        | table[pixel & 0xFF];
+            }
+            target.getRaster().setDataElements(0, firstRow, width, rows, pixels);
+        }
+    }
+}
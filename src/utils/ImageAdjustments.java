@@ -0,0 +1,87 @@
+package utils;
+
+import java.util.Objects;
+
+public final class ImageAdjustments {
+    public static final ImageAdjustments IDENTITY = new ImageAdjustments(0, 0, 1.0, 0, 255);
+
+    private final int brightness;
+    private final int contrast;
+    private final double gamma;
+    private final int black;
+    private final int white;
+    private int[] lookupTable;
+
+    // Brightness and contrast run from -100 to 100; black and white are the input levels mapped
+    // to 0 and 255.
+    public ImageAdjustments(int brightness, int contrast, double gamma, int black, int white) {
+        this.brightness = Math.max(-100, Math.min(100, brightness));
+        this.contrast = Math.max(-100, Math.min(100, contrast));
+        this.gamma = Math.max(0.1, Math.min(10, gamma));
+        this.black = Math.max(0, Math.min(254, black));
+        this.white = Math.max(this.black + 1, Math.min(255, white));
+    }
+
+    public int getBrightness() {
+        return brightness;
+    }
+
+    public int getContrast() {
+        return contrast;
+    }
+
+    public double getGamma() {
+        return gamma;
+    }
+
+    public int getBlack() {
+        return black;
+    }
+
+    public int getWhite() {
+        return white;
+    }
+
+    public ImageAdjustments withLevels(int black, int white) {
+        return new ImageAdjustments(brightness, contrast, gamma, black, white);
+    }
+
+    public boolean isIdentity() {
+        return equals(IDENTITY);
+    }
+
+    // Levels, then gamma, contrast and brightness, folded into one table shared by all channels.
+    public synchronized int[] lookupTable() {
+        if (lookupTable == null) {
+            int[] table = new int[256];
+            double contrastFactor = Math.tan((contrast / 100.0 + 1) * Math.PI / 4);
+            for (int i = 0; i < 256; i++) {
+                double v = Math.max(0, Math.min(1, (i - black) / (double) (white - black)));
+                v = Math.pow(v, 1 / gamma);
+                v = (v - 0.5) * contrastFactor + 0.5;
+                v += brightness / 200.0;
+                table[i] = (int) Math.round(Math.max(0, Math.min(1, v)) * 255);
+            }
+            lookupTable = table;
+        }
+        return lookupTable;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ImageAdjustments)) {
+            return false;
+        }
+        ImageAdjustments that = (ImageAdjustments) other;
+        return brightness == that.brightness && contrast == that.contrast && Double.compare(gamma, that.gamma) == 0
+                && black == that.black && white == that.white;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(brightness, contrast, gamma, black, white);
+    }
+}
@@ -0,0 +1,112 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Iterator;
+import java.util.Locale;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+public class ImageProbe {
+    public static final int ORIENTATION_UNKNOWN = 0;
+    private static final int MAX_EXIF_SCAN = 1 << 16;
+
+    public static class ImageInfo {
+        public final int width;
+        public final int height;
+        public final String format;
+        public final int orientation;
+
+        public ImageInfo(int width, int height, String format, int orientation) {
+            this.width = width;
+            this.height = height;
+            this.format = format;
+            this.orientation = orientation;
+        }
+    }
+
+    public static ImageInfo probe(File file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            if (in == null) {
+                throw new IOException("Cannot open " + file);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + file.getName());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+                int orientation = "jpeg".equals(format) ? readJpegOrientation(file) : ORIENTATION_UNKNOWN;
+                return new ImageInfo(reader.getWidth(0), reader.getHeight(0), format, orientation);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static int readJpegOrientation(File file) {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            if (in.readUnsignedShort() != 0xFFD8) {
+                return ORIENTATION_UNKNOWN;
+            }
+            while (in.getFilePointer() < MAX_EXIF_SCAN) {
+                int marker = in.readUnsignedShort();
+                int length = in.readUnsignedShort();
+                if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA || length < 2) {
+                    return ORIENTATION_UNKNOWN;
+                }
+                if (marker == 0xFFE1 && length > 14) {
+                    byte[] segment = new byte[length - 2];
+                    in.readFully(segment);
+                    return exifOrientation(segment);
+                }
+                in.seek(in.getFilePointer() + length - 2);
+            }
+        } catch (IOException | RuntimeException e) {
+            // A truncated, malformed or non-standard header only means the orientation is unknown.
+        }
+        return ORIENTATION_UNKNOWN;
+    }
+
+    private static int exifOrientation(byte[] segment) {
+        if (segment[0] != 'E' || segment[1] != 'x' || segment[2] != 'i' || segment[3] != 'f') {
+            return ORIENTATION_UNKNOWN;
+        }
+        int tiff = 6;
+        if (tiff + 8 > segment.length) {
+            return ORIENTATION_UNKNOWN;
+        }
+        boolean littleEndian = segment[tiff] == 'I';
+        int ifd = tiff + readInt(segment, tiff + 4, littleEndian);
+        if (ifd < tiff || ifd + 2 > segment.length) {
+            return ORIENTATION_UNKNOWN;
+        }
+        int entries = readShort(segment, ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > segment.length) {
+                break;
+            }
+            if (readShort(segment, entry, littleEndian) == 0x0112) {
+                return readShort(segment, entry + 8, littleEndian);
+            }
+        }
+        return ORIENTATION_UNKNOWN;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int b0 = data[offset] & 0xFF;
+        int b1 = data[offset + 1] & 0xFF;
+        return littleEndian ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    private static int readInt(byte[] data, int offset, boolean littleEndian) {
+        int high = readShort(data, offset + (littleEndian ? 2 : 0), littleEndian);
+        int low = readShort(data, offset + (littleEndian ? 0 : 2), littleEndian);
+        return (high << 16) | low;
+    }
+}
@@ -0,0 +1,90 @@
+package utils;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class ImageStatistics {
+    private static final int BAND_ROWS = 64;
+    private static final int SAMPLE_TARGET = 1 << 16;
+
+    private final ForkJoinPool pool;
+
+    public ImageStatistics() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ImageStatistics(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // A strided subset of roughly 64k pixels, cheap enough to answer on the event thread.
+    public Histogram sample(BufferedImage image) {
+        long pixels = (long) image.getWidth() * image.getHeight();
+        int step = (int) Math.max(1, Math.ceil(Math.sqrt(pixels / (double) SAMPLE_TARGET)));
+        if (step == 1) {
+            return compute(image);
+        }
+        int[][] bins = new int[4][256];
+        int[] row = new int[image.getWidth()];
+        for (int y = step / 2; y < image.getHeight(); y += step) {
+            ImageAdjuster.readRows(image, y, 1, row);
+            for (int x = step / 2; x < row.length; x += step) {
+                count(bins, row[x]);
+            }
+        }
+        return new Histogram(bins, false);
+    }
+
+    public Histogram compute(BufferedImage image) {
+        return new Histogram(pool.invoke(new Band(image, 0, image.getHeight())), true);
+    }
+
+    private static void count(int[][] bins, int pixel) {
+        int red = (pixel >>> 16) & 0xFF;
+        int green = (pixel >>> 8) & 0xFF;
+        int blue = pixel & 0xFF;
+        bins[Histogram.RED][red]++;
+        bins[Histogram.GREEN][green]++;
+        bins[Histogram.BLUE][blue]++;
+        // Rec. 601 weights in fixed point.
+        bins[Histogram.LUMA][(red * 77 + green * 150 + blue * 29) >>> 8]++;
+    }
+
+    // Each band counts into its own bins; the halves are summed on the way back up.
+    private static class Band extends RecursiveTask<int[][]> {
+        private final BufferedImage image;
+        private final int firstRow;
+        private final int endRow;
+
+        Band(BufferedImage image, int firstRow, int endRow) {
+            this.image = image;
+            this.firstRow = firstRow;
+            this.endRow = endRow;
+        }
+
+        @Override
+        protected int[][] compute() {
+            if (endRow - firstRow > BAND_ROWS) {
+                int middle = (firstRow + endRow) >>> 1;
+                Band top = new Band(image, firstRow, middle);
+                top.fork();
+                int[][] bins = new Band(image, middle, endRow).compute();
+                int[][] other = top.join();
+                for (int channel = 0; channel < 4; channel++) {
+                    for (int value = 0; value < 256; value++) {
+                        bins[channel][value] += other[channel][value];
+                    }
+                }
+                return bins;
+            }
+            int[][] bins = new int[4][256];
+            int rows = endRow - firstRow;
+            int[] pixels = ImageAdjuster.readRows(image, firstRow, rows, new int[image.getWidth() * rows]);
+            for (int pixel : pixels) {
+                count(bins, pixel);
+            }
+            return bins;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package utils;
+
+import java.util.Arrays;
+
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long windowNanos;
+    private long[] current = new long[BUCKET_COUNT];
+    private long[] previous = new long[BUCKET_COUNT];
+    private long currentMax;
+    private long previousMax;
+    private long windowStart;
+
+    public LatencyHistogram(long windowNanos) {
+        this.windowNanos = windowNanos;
+        this.windowStart = System.nanoTime();
+    }
+
+    public synchronized void record(long nanos) {
+        rotateIfNeeded(System.nanoTime());
+        long value = Math.max(0, nanos);
+        current[bucketOf(value)]++;
+        if (value > currentMax) {
+            currentMax = value;
+        }
+    }
+
+    public synchronized long percentile(double fraction) {
+        rotateIfNeeded(System.nanoTime());
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += current[i] + previous[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += current[i] + previous[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), maxLocked());
+            }
+        }
+        return maxLocked();
+    }
+
+    public synchronized long max() {
+        rotateIfNeeded(System.nanoTime());
+        return maxLocked();
+    }
+
+    public synchronized long count() {
+        rotateIfNeeded(System.nanoTime());
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += current[i] + previous[i];
+        }
+        return total;
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(current, 0);
+        Arrays.fill(previous, 0);
+        currentMax = 0;
+        previousMax = 0;
+        windowStart = System.nanoTime();
+    }
+
+    private long maxLocked() {
+        return Math.max(currentMax, previousMax);
+    }
+
+    private void rotateIfNeeded(long now) {
+        long elapsed = now - windowStart;
+        if (elapsed < windowNanos) {
+            return;
+        }
+        long[] recycled = previous;
+        Arrays.fill(recycled, 0);
+        if (elapsed < 2 * windowNanos) {
+            previous = current;
+            previousMax = currentMax;
+        } else {
+            Arrays.fill(current, 0);
+            previous = current;
+            previousMax = 0;
+        }
+        current = recycled;
+        currentMax = 0;
+        windowStart = now;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
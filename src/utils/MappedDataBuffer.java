@@ -0,0 +1,35 @@
+package utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.nio.ByteBuffer;
+
+// Byte samples read straight from a mapped file, so pixels page in only when something reads
+// them. The mapping is read-only; edits always work on heap copies.
+public class MappedDataBuffer extends DataBuffer {
+    private final ByteBuffer bytes;
+
+    public MappedDataBuffer(ByteBuffer bytes) {
+        super(TYPE_BYTE, bytes.capacity());
+        this.bytes = bytes;
+    }
+
+    public static boolean isMapped(BufferedImage image) {
+        return image != null && image.getRaster().getDataBuffer() instanceof MappedDataBuffer;
+    }
+
+    @Override
+    public int getElem(int bank, int i) {
+        return bytes.get(i) & 0xFF;
+    }
+
+    @Override
+    public void setElem(int bank, int i, int value) {
+        bytes.put(i, (byte) value);
+    }
+
+    public void copyTo(DataBufferByte target) {
+        bytes.get(0, target.getData(), 0, getSize());
+    }
+}
@@ -0,0 +1,223 @@
+package utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import interfaces.IMemoryAccountantMXBean;
+
+public class MemoryAccountant implements IMemoryAccountantMXBean {
+    // enforceBudget evicts in declaration order, so evictable categories go cheapest to rebuild first.
+    public enum Category {
+        DECODED_IMAGES(false),
+        STROKE_POINTS(false),
+        ANNOTATION_TEXT(false),
+        LAYOUT_CACHE(true),
+        PREFETCHED_IMAGES(true);
+
+        private final boolean evictable;
+
+        Category(boolean evictable) {
+            this.evictable = evictable;
+        }
+
+        public boolean isEvictable() {
+            return evictable;
+        }
+    }
+
+    public interface Evictable {
+        long evict(long bytesToFree);
+    }
+
+    public static final String OBJECT_NAME = "photoviewer:type=MemoryAccountant";
+    public static final String BUDGET_PROPERTY = "photoviewer.memoryBudget";
+    private static final MemoryAccountant SHARED = new MemoryAccountant(defaultBudget());
+
+    private final Map<Category, AtomicLong> bytes = new EnumMap<>(Category.class);
+    private final Map<Category, List<Evictable>> caches = new EnumMap<>(Category.class);
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongAdder evictedBytes = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private volatile long budgetBytes;
+    private boolean registered;
+
+    public MemoryAccountant(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        for (Category category : Category.values()) {
+            bytes.put(category, new AtomicLong());
+            caches.put(category, new CopyOnWriteArrayList<>());
+        }
+    }
+
+    public static MemoryAccountant shared() {
+        SHARED.register();
+        return SHARED;
+    }
+
+    private synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException | SecurityException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static long defaultBudget() {
+        String configured = System.getProperty(BUDGET_PROPERTY);
+        if (configured != null) {
+            try {
+                return parseSize(configured);
+            } catch (NumberFormatException e) {
+                System.err.println("Ignoring invalid " + BUDGET_PROPERTY + ": " + configured);
+            }
+        }
+        return Runtime.getRuntime().maxMemory() / 4 * 3;
+    }
+
+    public static long parseSize(String size) {
+        String value = size.trim().toLowerCase(Locale.ROOT);
+        long multiplier = 1;
+        char unit = value.isEmpty() ? ' ' : value.charAt(value.length() - 1);
+        if (unit == 'k' || unit == 'm' || unit == 'g') {
+            multiplier = unit == 'k' ? 1L << 10 : unit == 'm' ? 1L << 20 : 1L << 30;
+            value = value.substring(0, value.length() - 1);
+        }
+        return Long.parseLong(value) * multiplier;
+    }
+
+    public static long imageBytes(BufferedImage image) {
+        if (image == null) {
+            return 0;
+        }
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        // Mapped pixels live in the page cache rather than the heap.
+        if (buffer instanceof MappedDataBuffer) {
+            return 0;
+        }
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    public static long pointBytes(int points) {
+        // A java.awt.Point object plus its ArrayList slot.
+        return points * 32L;
+    }
+
+    public static long textBytes(int characters) {
+        return 48L + characters * 2L;
+    }
+
+    public void register(Category category, Evictable cache) {
+        if (!category.isEvictable()) {
+            throw new IllegalArgumentException(category + " is not an evictable category");
+        }
+        caches.get(category).add(cache);
+    }
+
+    public void unregister(Category category, Evictable cache) {
+        caches.get(category).remove(cache);
+    }
+
+    public void add(Category category, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        bytes.get(category).addAndGet(delta);
+        if (delta > 0) {
+            enforceBudget();
+        }
+    }
+
+    public void release(Category category, long delta) {
+        add(category, -delta);
+    }
+
+    public long bytes(Category category) {
+        return bytes.get(category).get();
+    }
+
+    @Override
+    public long getTotalBytes() {
+        long total = 0;
+        for (AtomicLong value : bytes.values()) {
+            total += value.get();
+        }
+        return total;
+    }
+
+    @Override
+    public void enforceBudget() {
+        if (getTotalBytes() <= budgetBytes || !evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (Category category : Category.values()) {
+                if (!category.isEvictable()) {
+                    continue;
+                }
+                for (Evictable cache : caches.get(category)) {
+                    long excess = getTotalBytes() - budgetBytes;
+                    if (excess <= 0) {
+                        return;
+                    }
+                    long freed = cache.evict(excess);
+                    if (freed > 0) {
+                        evictedBytes.add(freed);
+                        evictionCount.increment();
+                    }
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getBytesByCategory() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<Category, AtomicLong> entry : bytes.entrySet()) {
+            result.put(entry.getKey().name().toLowerCase(Locale.ROOT), entry.getValue().get());
+        }
+        return result;
+    }
+
+    @Override
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    @Override
+    public void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        enforceBudget();
+    }
+
+    @Override
+    public long getEvictedBytes() {
+        return evictedBytes.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+}
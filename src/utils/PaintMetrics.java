@@ -0,0 +1,144 @@
+package utils;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import interfaces.IPaintMetricsMXBean;
+
+public class PaintMetrics implements IPaintMetricsMXBean {
+    public enum Layer { PAINT, BACKGROUND, PHOTO, STROKES, ANNOTATIONS }
+
+    public static final String OBJECT_NAME = "photoviewer:type=PaintMetrics";
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final PaintMetrics SHARED = new PaintMetrics();
+
+    private final Map<Layer, LatencyHistogram> histograms = new EnumMap<>(Layer.class);
+    private final LongAdder repaintsRequested = new LongAdder();
+    private final LongAdder repaintsPerformed = new LongAdder();
+    private final AtomicLong eventsInWindow = new AtomicLong();
+    private volatile long rateWindowStart = System.nanoTime();
+    private volatile double eventsPerSecond;
+    private boolean registered;
+
+    public PaintMetrics() {
+        for (Layer layer : Layer.values()) {
+            histograms.put(layer, new LatencyHistogram(WINDOW_NANOS));
+        }
+    }
+
+    public static PaintMetrics shared() {
+        SHARED.register();
+        return SHARED;
+    }
+
+    private synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException | SecurityException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void record(Layer layer, long nanos) {
+        histograms.get(layer).record(nanos);
+        if (layer == Layer.PAINT) {
+            repaintsPerformed.increment();
+        }
+    }
+
+    public void recordEvent() {
+        rollRateWindow(System.nanoTime());
+        eventsInWindow.incrementAndGet();
+    }
+
+    public void recordRepaintRequest() {
+        repaintsRequested.increment();
+    }
+
+    private void rollRateWindow(long now) {
+        long start = rateWindowStart;
+        long elapsed = now - start;
+        if (elapsed >= RATE_WINDOW_NANOS) {
+            synchronized (eventsInWindow) {
+                if (rateWindowStart == start) {
+                    long events = eventsInWindow.getAndSet(0);
+                    eventsPerSecond = elapsed < 2 * RATE_WINDOW_NANOS ? events * 1e9 / elapsed : 0.0;
+                    rateWindowStart = now;
+                }
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Double> getLatencyMillis() {
+        Map<String, Double> latencies = new LinkedHashMap<>();
+        for (Layer layer : Layer.values()) {
+            String key = layer.name().toLowerCase(Locale.ROOT);
+            LatencyHistogram histogram = histograms.get(layer);
+            latencies.put(key + ".p50", histogram.percentile(0.50) / 1e6);
+            latencies.put(key + ".p99", histogram.percentile(0.99) / 1e6);
+            latencies.put(key + ".max", histogram.max() / 1e6);
+        }
+        return latencies;
+    }
+
+    @Override
+    public double getEventsPerSecond() {
+        rollRateWindow(System.nanoTime());
+        return eventsPerSecond;
+    }
+
+    @Override
+    public long getRepaintsRequested() {
+        return repaintsRequested.sum();
+    }
+
+    @Override
+    public long getRepaintsPerformed() {
+        return repaintsPerformed.sum();
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        repaintsRequested.reset();
+        repaintsPerformed.reset();
+        eventsInWindow.set(0);
+        eventsPerSecond = 0.0;
+        rateWindowStart = System.nanoTime();
+    }
+
+    public List<String> summaryLines() {
+        List<String> lines = new ArrayList<>();
+        for (Layer layer : Layer.values()) {
+            LatencyHistogram histogram = histograms.get(layer);
+            lines.add(String.format(Locale.ROOT, "%-11s p50 %6.2f  p99 %6.2f  max %6.2f ms",
+                    layer.name().toLowerCase(Locale.ROOT),
+                    histogram.percentile(0.50) / 1e6, histogram.percentile(0.99) / 1e6, histogram.max() / 1e6));
+        }
+        lines.add(String.format(Locale.ROOT, "events %.0f/s  repaints %d requested / %d performed",
+                getEventsPerSecond(), getRepaintsRequested(), getRepaintsPerformed()));
+        return lines;
+    }
+}
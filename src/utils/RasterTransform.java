@@ -0,0 +1,64 @@
+package utils;
+
+import java.awt.geom.AffineTransform;
+
+public enum RasterTransform {
+    MIRROR("Mirror"),
+    ROTATE_90("Rotate 90° Clockwise"),
+    ROTATE_180("Rotate 180°"),
+    ROTATE_270("Rotate 90° Counter-clockwise");
+
+    private final String label;
+
+    RasterTransform(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public boolean swapsDimensions() {
+        return this == ROTATE_90 || this == ROTATE_270;
+    }
+
+    // Maps x, y pairs in place, using pixel indices so a point stays on the pixel it was drawn over.
+    public void mapCoordinates(int[] coordinates, int width, int height) {
+        for (int i = 0; i < coordinates.length; i += 2) {
+            int x = coordinates[i];
+            int y = coordinates[i + 1];
+            switch (this) {
+                case MIRROR:
+                    coordinates[i] = width - 1 - x;
+                    break;
+                case ROTATE_90:
+                    coordinates[i] = height - 1 - y;
+                    coordinates[i + 1] = x;
+                    break;
+                case ROTATE_180:
+                    coordinates[i] = width - 1 - x;
+                    coordinates[i + 1] = height - 1 - y;
+                    break;
+                case ROTATE_270:
+                    coordinates[i] = y;
+                    coordinates[i + 1] = width - 1 - x;
+                    break;
+            }
+        }
+    }
+
+    // The inverse of mapCoordinates: takes pixel indices of the transformed raster back to the
+    // width by height source.
+    public AffineTransform toSource(int width, int height) {
+        switch (this) {
+            case MIRROR:
+                return new AffineTransform(-1, 0, 0, 1, width - 1, 0);
+            case ROTATE_90:
+                return new AffineTransform(0, -1, 1, 0, 0, height - 1);
+            case ROTATE_180:
+                return new AffineTransform(-1, 0, 0, -1, width - 1, height - 1);
+            default:
+                return new AffineTransform(0, 1, -1, 0, width - 1, 0);
+        }
+    }
+}
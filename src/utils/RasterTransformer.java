@@ -0,0 +1,120 @@
+package utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class RasterTransformer {
+    private static final int BAND_ROWS = 64;
+
+    private final ForkJoinPool pool;
+
+    private interface RowRange {
+        void run(int first, int end);
+    }
+
+    public RasterTransformer() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public RasterTransformer(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // Always fills a new image, so exports or statistics still reading the source never see a
+    // half-transformed raster. Rows move through getDataElements/setDataElements, like
+    // ImageAdjuster, which keeps both images eligible for accelerated drawing.
+    public BufferedImage apply(BufferedImage source, RasterTransform transform) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage target = transform.swapsDimensions()
+                ? new BufferedImage(height, width, type) : new BufferedImage(width, height, type);
+        WritableRaster raster = target.getRaster();
+        forRows(height, (first, end) -> {
+            int rows = end - first;
+            int[] pixels = ImageAdjuster.readRows(source, first, rows, new int[width * rows]);
+            switch (transform) {
+                case MIRROR:
+                    for (int y = 0; y < rows; y++) {
+                        reverse(pixels, y * width, width);
+                    }
+                    raster.setDataElements(0, first, width, rows, pixels);
+                    break;
+                case ROTATE_180:
+                    reverse(pixels, 0, pixels.length);
+                    raster.setDataElements(0, height - end, width, rows, pixels);
+                    break;
+                case ROTATE_90: {
+                    // The band becomes a strip of columns; source row y lands in column height-1-y.
+                    int[] strip = new int[pixels.length];
+                    for (int y = 0; y < rows; y++) {
+                        int row = y * width;
+                        int column = rows - 1 - y;
+                        for (int x = 0; x < width; x++) {
+                            strip[x * rows + column] = pixels[row + x];
+                        }
+                    }
+                    raster.setDataElements(height - end, 0, rows, width, strip);
+                    break;
+                }
+                default: {
+                    int[] strip = new int[pixels.length];
+                    for (int y = 0; y < rows; y++) {
+                        int row = y * width;
+                        for (int x = 0; x < width; x++) {
+                            strip[(width - 1 - x) * rows + y] = pixels[row + x];
+                        }
+                    }
+                    raster.setDataElements(first, 0, rows, width, strip);
+                    break;
+                }
+            }
+        });
+        return target;
+    }
+
+    // Copies a sub-image view into a raster of its own, keeping the pixel layout.
+    public static BufferedImage compact(BufferedImage view) {
+        WritableRaster raster = view.getRaster().createCompatibleWritableRaster(view.getWidth(), view.getHeight());
+        raster.setRect(-view.getRaster().getMinX(), -view.getRaster().getMinY(), view.getRaster());
+        return new BufferedImage(view.getColorModel(), raster, view.isAlphaPremultiplied(), null);
+    }
+
+    private static void reverse(int[] pixels, int start, int length) {
+        for (int left = start, right = start + length - 1; left < right; left++, right--) {
+            int swap = pixels[left];
+            pixels[left] = pixels[right];
+            pixels[right] = swap;
+        }
+    }
+
+    private void forRows(int rows, RowRange range) {
+        pool.invoke(new Rows(range, 0, rows, BAND_ROWS));
+    }
+
+    private static class Rows extends RecursiveAction {
+        private final RowRange range;
+        private final int first;
+        private final int end;
+        private final int grain;
+
+        Rows(RowRange range, int first, int end, int grain) {
+            this.range = range;
+            this.first = first;
+            this.end = end;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - first > grain) {
+                int middle = (first + end) >>> 1;
+                invokeAll(new Rows(range, first, middle, grain), new Rows(range, middle, end, grain));
+            } else {
+                range.run(first, end);
+            }
+        }
+    }
+}
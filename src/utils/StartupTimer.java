@@ -0,0 +1,66 @@
+package utils;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+public class StartupTimer {
+    public static final String REPORT_PROPERTY = "photoviewer.startupTiming";
+    public static final String FIRST_FRAME = "first frame";
+    private static final StartupTimer SHARED = new StartupTimer();
+
+    private final long originNanos;
+    private final Map<String, Long> marks = new LinkedHashMap<>();
+    private boolean reported;
+
+    // Times are measured from process launch where the platform reports it, so JVM boot and
+    // class loading before main are included.
+    StartupTimer() {
+        long now = System.nanoTime();
+        long sinceLaunch = ProcessHandle.current().info().startInstant()
+                .map(start -> Duration.between(start, Instant.now()).toNanos())
+                .orElse(0L);
+        this.originNanos = now - Math.max(0, sinceLaunch);
+    }
+
+    public static StartupTimer shared() {
+        return SHARED;
+    }
+
+    // Only the first occurrence of each phase is kept.
+    public synchronized void mark(String phase) {
+        marks.putIfAbsent(phase, System.nanoTime() - originNanos);
+    }
+
+    public synchronized long elapsedNanos(String phase) {
+        Long elapsed = marks.get(phase);
+        return elapsed == null ? -1 : elapsed;
+    }
+
+    public synchronized Map<String, Long> getMarks() {
+        return new LinkedHashMap<>(marks);
+    }
+
+    public void firstFrame() {
+        synchronized (this) {
+            if (reported) {
+                return;
+            }
+            reported = true;
+        }
+        mark(FIRST_FRAME);
+        if (Boolean.getBoolean(REPORT_PROPERTY)) {
+            report(System.out);
+        }
+    }
+
+    public synchronized void report(PrintStream out) {
+        out.println("Startup timing:");
+        for (Map.Entry<String, Long> mark : marks.entrySet()) {
+            out.printf(Locale.ROOT, "  %-18s %8.1f ms%n", mark.getKey(), mark.getValue() / 1e6);
+        }
+    }
+}
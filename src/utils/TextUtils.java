@@ -1,18 +1,19 @@
 package utils;
 
 import java.awt.*;
-import java.awt.image.BufferedImage;
 import utils.Constants;
+import utils.FontMetricsService;
 import utils.WordWrapUtils;
 
 public class TextUtils {
+    private final WordWrapUtils wordWrapUtils = new WordWrapUtils();
     
     public static Font createFont(int style) {
-        return new Font(Constants.FONT_NAME, style, Constants.FONT_SIZE);
+        return FontMetricsService.shared().font(style);
     }
     
     public static Font createBoldFont() {
-        return new Font(Constants.FONT_NAME, Font.BOLD, Constants.FONT_SIZE_BOLD);
+        return FontMetricsService.shared().boldFont();
     }
     
     public void setupFont(Graphics2D g2) {
@@ -29,64 +30,21 @@ public class TextUtils {
     
 
     public Rectangle calculateTextBounds(FontMetrics fm, String text, int x, int y, int maxWidth) {
-        if (text == null || text.isEmpty()) {
-            return new Rectangle(x, y - fm.getAscent(), 0, fm.getHeight());
+        return calculateTextBounds(FontMetricsService.shared().metricsFor(fm.getFont()), text, x, y, maxWidth);
+    }
+
+    public Rectangle calculateTextBounds(FontMetricsService.Metrics metrics, CharSequence text, int x, int y, int maxWidth) {
+        if (text == null || text.length() == 0) {
+            return new Rectangle(x, y - metrics.getAscent(), 0, metrics.getHeight());
         }
         
-        BufferedImage tempImage = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D tempG2 = tempImage.createGraphics();
-        tempG2.setFont(fm.getFont());
-        
-        WordWrapUtils wordWrapUtils = new WordWrapUtils();
-        int startY = y;
-        int finalY = wordWrapUtils.drawWrappedText(tempG2, fm, text, x, y, maxWidth);
-        
-        int lineHeight = calculateLineHeight(fm);
-        int numberOfLines = Math.max(1, (finalY - startY) / lineHeight);
-        int totalHeight = numberOfLines * lineHeight;
-        
-        tempG2.dispose();
+        int[] widest = new int[1];
+        int finalY = wordWrapUtils.layout(metrics, text, y, maxWidth,
+                (start, end, lineY) -> widest[0] = Math.max(widest[0], metrics.width(text, start, end)));
         
-        int maxWidthUsed = 0;
-        String currentLine = "";
-        String[] words = text.split(" ");
+        int lineHeight = metrics.getLineHeight();
+        int numberOfLines = Math.max(1, (finalY - y) / lineHeight);
         
-        for (String word : words) {
-            String testLine = currentLine.isEmpty() ? word : currentLine + " " + word;
-            int lineWidth = fm.stringWidth(testLine);
-            
-            if (lineWidth <= maxWidth) {
-                currentLine = testLine;
-                maxWidthUsed = Math.max(maxWidthUsed, lineWidth);
-            } else {
-                if (!currentLine.isEmpty()) {
-                    maxWidthUsed = Math.max(maxWidthUsed, fm.stringWidth(currentLine));
-                    currentLine = "";
-                }
-                
-                int wordWidth = fm.stringWidth(word);
-                if (wordWidth > maxWidth) {
-                    String remainingWord = word;
-                    while (remainingWord.length() > 0) {
-                        String testWord = remainingWord;
-                        while (fm.stringWidth(testWord) > maxWidth && testWord.length() > 1) {
-                            testWord = testWord.substring(0, testWord.length() - 1);
-                        }
-                        maxWidthUsed = Math.max(maxWidthUsed, fm.stringWidth(testWord));
-                        remainingWord = remainingWord.substring(testWord.length());
-                    }
-                } else {
-                    currentLine = word;
-                    maxWidthUsed = Math.max(maxWidthUsed, fm.stringWidth(word));
-                }
-            }
-        }
-        
-        if (!currentLine.isEmpty()) {
-            maxWidthUsed = Math.max(maxWidthUsed, fm.stringWidth(currentLine));
-        }
-        
-        return new Rectangle(x, y - fm.getAscent(), maxWidthUsed, totalHeight);
+        return new Rectangle(x, y - metrics.getAscent(), widest[0], numberOfLines * lineHeight);
     }
 }
-
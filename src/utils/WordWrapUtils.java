@@ -1,63 +1,106 @@
 package utils;
 
 import java.awt.*;
-import utils.TextUtils;
+import utils.FontMetricsService;
 
 public class WordWrapUtils {
+    private final FontMetricsService fontMetricsService = FontMetricsService.shared();
+
+    public interface LineSink {
+        void line(int start, int end, int y);
+    }
     
     public int drawWrappedText(Graphics2D g2, FontMetrics fm, String text, int x, int y, int maxWidth) {
-        String[] words = text.split(" ");
-        TextUtils textUtils = new TextUtils();
-        int lineHeight = textUtils.calculateLineHeight(fm);
-        StringBuilder currentLine = new StringBuilder();
+        return drawWrappedText(g2, fontMetricsService.metricsFor(fm.getFont()), text, x, y, maxWidth);
+    }
+
+    public int drawWrappedText(Graphics2D g2, FontMetricsService.Metrics metrics, CharSequence text,
+                               int x, int y, int maxWidth) {
+        return layout(metrics, text, y, maxWidth,
+                (start, end, lineY) -> g2.drawString(text.subSequence(start, end).toString(), x, lineY));
+    }
+
+    public Point caretLocation(FontMetricsService.Metrics metrics, CharSequence text, int caret,
+                               int x, int y, int maxWidth) {
+        Point location = new Point(x, y);
+        layout(metrics, text, y, maxWidth, (start, end, lineY) -> {
+            if (start <= caret) {
+                location.x = x + metrics.width(text, start, Math.min(caret, end))
+                        + (caret > end ? metrics.width(text, end, caret) : 0);
+                location.y = lineY;
+            }
+        });
+        return location;
+    }
+
+    // Lays the text out word by word as index ranges into the original sequence, so measuring
+    // never copies the text. Returns the baseline below the last full line, as drawing always has.
+    public int layout(FontMetricsService.Metrics metrics, CharSequence text, int y, int maxWidth, LineSink sink) {
+        int lineHeight = metrics.getLineHeight();
+        int end = text.length();
+        while (end > 0 && text.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (end == 0) {
+            return y;
+        }
         
-        for (String word : words) {
-            String testLine = currentLine.length() == 0 ? word : currentLine + " " + word;
-            int lineWidth = fm.stringWidth(testLine);
+        int lineStart = -1;
+        int lineEnd = -1;
+        int wordStart = 0;
+        while (wordStart <= end) {
+            int wordEnd = wordStart;
+            while (wordEnd < end && text.charAt(wordEnd) != ' ') {
+                wordEnd++;
+            }
+            int testStart = lineStart < 0 ? wordStart : lineStart;
+            int lineWidth = metrics.width(text, testStart, wordEnd);
             
             if (lineWidth <= maxWidth) {
-                currentLine = new StringBuilder(testLine);
+                if (testStart < wordEnd) {
+                    lineStart = testStart;
+                    lineEnd = wordEnd;
+                }
             } else {
-                if (currentLine.length() > 0) {
-                    y = drawCurrentLineAndAdvance(g2, fm, x, y, currentLine, lineHeight, maxWidth);
+                if (lineStart >= 0) {
+                    sink.line(lineStart, lineEnd, y);
+                    y += lineHeight;
+                    lineStart = -1;
                 }
                 
-                if (fm.stringWidth(word) > maxWidth) {
-                    y = drawLongWord(g2, fm, x, y, lineHeight, maxWidth, word);
-                    currentLine = new StringBuilder();
-                } else {
-                    currentLine = new StringBuilder(word);
+                if (metrics.width(text, wordStart, wordEnd) > maxWidth) {
+                    y = layoutLongWord(metrics, text, wordStart, wordEnd, y, maxWidth, sink);
+                } else if (wordStart < wordEnd) {
+                    lineStart = wordStart;
+                    lineEnd = wordEnd;
                 }
             }
+            wordStart = wordEnd + 1;
         }
         
-        if (currentLine.length() > 0) {
-            g2.drawString(currentLine.toString(), x, y);
+        if (lineStart >= 0) {
+            sink.line(lineStart, lineEnd, y);
         }
         return y;
     }
-    
-    public int drawCurrentLineAndAdvance(Graphics2D g2, FontMetrics fm, int x, int y, 
-                                       StringBuilder currentLine, int lineHeight, int maxWidth) {
-        if (currentLine.length() > 0) {
-            g2.drawString(currentLine.toString(), x, y);
-            return y + lineHeight;
-        } else {
-            return y;
-        }
-    }
-    
-    public int drawLongWord(Graphics2D g2, FontMetrics fm, int x, int y, int lineHeight, int maxWidth, String word) {
-        String remainingWord = word;
-        
-        while (remainingWord.length() > 0) {
-            String testWord = remainingWord;
-            while (fm.stringWidth(testWord) > maxWidth && testWord.length() > 1) {
-                testWord = testWord.substring(0, testWord.length() - 1);
+
+    private int layoutLongWord(FontMetricsService.Metrics metrics, CharSequence text,
+                               int start, int end, int y, int maxWidth, LineSink sink) {
+        int lineHeight = metrics.getLineHeight();
+        while (start < end) {
+            int pieceEnd = start + 1;
+            int width = metrics.charWidth(text.charAt(start));
+            while (pieceEnd < end) {
+                int next = width + metrics.charWidth(text.charAt(pieceEnd));
+                if (next > maxWidth) {
+                    break;
+                }
+                width = next;
+                pieceEnd++;
             }
-            g2.drawString(testWord, x, y);
+            sink.line(start, pieceEnd, y);
             y += lineHeight;
-            remainingWord = remainingWord.substring(testWord.length());
+            start = pieceEnd;
         }
         return y;
     }
@@ -0,0 +1,73 @@
+package view;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import utils.ImageAdjustments;
+
+public class AdjustmentsPanel {
+    private final JSlider brightness = new JSlider(-100, 100, 0);
+    private final JSlider contrast = new JSlider(-100, 100, 0);
+    private final JSlider gamma = new JSlider(10, 300, 100);
+    private final JSlider black = new JSlider(0, 254, 0);
+    private final JSlider white = new JSlider(1, 255, 255);
+    private final List<JSlider> sliders = new ArrayList<>();
+    private BiConsumer<ImageAdjustments, Boolean> adjustmentListener;
+    private boolean updating;
+
+    public AdjustmentsPanel() {
+        sliders.add(brightness);
+        sliders.add(contrast);
+        sliders.add(gamma);
+        sliders.add(black);
+        sliders.add(white);
+    }
+
+    // The flag is true while a slider is still being dragged.
+    public void setAdjustmentListener(BiConsumer<ImageAdjustments, Boolean> listener) {
+        this.adjustmentListener = listener;
+    }
+
+    public void setAdjustments(ImageAdjustments adjustments) {
+        updating = true;
+        brightness.setValue(adjustments.getBrightness());
+        contrast.setValue(adjustments.getContrast());
+        gamma.setValue((int) Math.round(adjustments.getGamma() * 100));
+        black.setValue(adjustments.getBlack());
+        white.setValue(adjustments.getWhite());
+        updating = false;
+    }
+
+    public ImageAdjustments getAdjustments() {
+        return new ImageAdjustments(brightness.getValue(), contrast.getValue(), gamma.getValue() / 100.0,
+                black.getValue(), white.getValue());
+    }
+
+    public JPanel createPanel() {
+        JPanel panel = new JPanel(new GridLayout(0, 2, 8, 4));
+        String[] labels = {"Brightness", "Contrast", "Gamma", "Black level", "White level"};
+        for (int i = 0; i < sliders.size(); i++) {
+            JSlider slider = sliders.get(i);
+            slider.addChangeListener(e -> fireChanged(slider.getValueIsAdjusting()));
+            panel.add(new JLabel(labels[i]));
+            panel.add(slider);
+        }
+        JButton reset = new JButton("Reset");
+        reset.addActionListener(e -> {
+            setAdjustments(ImageAdjustments.IDENTITY);
+            fireChanged(false);
+        });
+        panel.add(new JLabel());
+        panel.add(reset);
+        panel.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+        return panel;
+    }
+
+    private void fireChanged(boolean adjusting) {
+        if (!updating && adjustmentListener != null) {
+            adjustmentListener.accept(getAdjustments(), adjusting);
+        }
+    }
+}
@@ -1,26 +1,55 @@
 package view;
 
 import java.awt.*;
-import java.awt.image.BufferedImage;
+import interfaces.IAnnotation;
+import utils.FontMetricsService;
 import utils.TextUtils;
 import utils.WordWrapUtils;
 
 public class AnnotationRenderer {
     private final TextUtils textRenderer = new TextUtils();
     private final WordWrapUtils wordWrapper = new WordWrapUtils();
+    private final GlyphLineCache glyphLineCache = GlyphLineCache.shared();
+    private final FontMetricsService.Metrics metrics =
+            FontMetricsService.shared().metricsFor(TextUtils.createBoldFont());
     
     public void drawAnnotation(Graphics2D g2, Object annotation, int photoWidth) {
         if (isEmpty(annotation)) return;
         
         setupFont(g2);
-        FontMetrics fm = g2.getFontMetrics();
         Point pos = getPosition(annotation);
         int maxWidth = calculateMaxWidth(photoWidth, pos.x);
         
         if (maxWidth <= 0) return;
         
         g2.setColor(getColor(annotation));
-        wordWrapper.drawWrappedText(g2, fm, getText(annotation), pos.x, pos.y, maxWidth);
+        if (annotation instanceof IAnnotation && ((IAnnotation) annotation).isCommitted()
+                && !((IAnnotation) annotation).isEditing()) {
+            drawCachedLines(g2, (IAnnotation) annotation, pos, maxWidth);
+        } else {
+            wordWrapper.drawWrappedText(g2, metrics, getText(annotation), pos.x, pos.y, maxWidth);
+        }
+    }
+
+    private void drawCachedLines(Graphics2D g2, IAnnotation annotation, Point pos, int maxWidth) {
+        GlyphLineCache.Lines lines = glyphLineCache.linesFor(annotation, metrics, g2.getFontRenderContext(), maxWidth);
+        for (int i = 0; i < lines.glyphs.length; i++) {
+            g2.drawGlyphVector(lines.glyphs[i], pos.x, pos.y + lines.baselineOffsets[i]);
+        }
+    }
+    
+    public void drawCaret(Graphics2D g2, Object annotation, int photoWidth) {
+        if (!(annotation instanceof IAnnotation)) return;
+        
+        IAnnotation editable = (IAnnotation) annotation;
+        Point pos = editable.getPosition();
+        int maxWidth = calculateMaxWidth(photoWidth, pos.x);
+        if (maxWidth <= 0) return;
+        
+        Point caret = wordWrapper.caretLocation(metrics, editable.getTextSequence(), editable.getCaret(),
+                pos.x, pos.y, maxWidth);
+        g2.setColor(editable.getColor());
+        g2.drawLine(caret.x, caret.y - metrics.getAscent(), caret.x, caret.y + metrics.getDescent());
     }
     
     private void setupFont(Graphics2D g2) {
@@ -37,22 +66,15 @@ public class AnnotationRenderer {
             return new Rectangle(pos.x, pos.y, 0, 0);
         }
         
-        BufferedImage tempImage = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D tempG2 = tempImage.createGraphics();
-        setupFont(tempG2);
-        FontMetrics fm = tempG2.getFontMetrics();
-        
         Point pos = getPosition(annotation);
         int maxWidth = calculateMaxWidth(photoWidth, pos.x);
-        Rectangle bounds = textRenderer.calculateTextBounds(fm, getText(annotation), pos.x, pos.y, maxWidth);
-        
-        tempG2.dispose();
-        tempImage.flush();
-        
-        return bounds;
+        return textRenderer.calculateTextBounds(metrics, getText(annotation), pos.x, pos.y, maxWidth);
     }
     
     private boolean isEmpty(Object annotation) {
+        if (annotation instanceof IAnnotation) {
+            return ((IAnnotation) annotation).isEmpty();
+        }
         try {
             return (Boolean) annotation.getClass().getMethod("isEmpty").invoke(annotation);
         } catch (Exception e) {
@@ -60,7 +82,10 @@ public class AnnotationRenderer {
         }
     }
     
-    private String getText(Object annotation) {
+    private CharSequence getText(Object annotation) {
+        if (annotation instanceof IAnnotation) {
+            return ((IAnnotation) annotation).getTextSequence();
+        }
         try {
             return (String) annotation.getClass().getMethod("getText").invoke(annotation);
         } catch (Exception e) {
@@ -69,6 +94,9 @@ public class AnnotationRenderer {
     }
     
     private Point getPosition(Object annotation) {
+        if (annotation instanceof IAnnotation) {
+            return ((IAnnotation) annotation).getPosition();
+        }
         try {
             return (Point) annotation.getClass().getMethod("getPosition").invoke(annotation);
         } catch (Exception e) {
@@ -77,6 +105,9 @@ public class AnnotationRenderer {
     }
     
     private Color getColor(Object annotation) {
+        if (annotation instanceof IAnnotation) {
+            return ((IAnnotation) annotation).getColor();
+        }
         try {
             return (Color) annotation.getClass().getMethod("getColor").invoke(annotation);
         } catch (Exception e) {
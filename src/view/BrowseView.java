@@ -0,0 +1,94 @@
+package view;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class BrowseView {
+    public static final String[] MATCH_MODES = {"All", "Any", "None"};
+
+    private final ResultListModel resultModel = new ResultListModel();
+    private final JList<String> resultList = new JList<>(resultModel);
+    private final JComboBox<String> matchBox = new JComboBox<>(MATCH_MODES);
+    private final JLabel countLabel = new JLabel();
+
+    private java.awt.event.ActionListener matchActionListener;
+    private Consumer<Integer> openListener;
+
+    public BrowseView() {
+        resultList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        resultList.setPrototypeCellValue("/photos/library/2024/holiday/IMG_0000.jpg");
+    }
+
+    public void setMatchActionListener(java.awt.event.ActionListener listener) {
+        this.matchActionListener = listener;
+    }
+
+    public void setOpenListener(Consumer<Integer> listener) {
+        this.openListener = listener;
+    }
+
+    public int getMatchMode() {
+        return matchBox.getSelectedIndex();
+    }
+
+    public void showResults(List<String> results, String summary) {
+        resultModel.setResults(results);
+        countLabel.setText(summary);
+    }
+
+    public JPanel createPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+
+        JPanel header = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        header.add(new JLabel("Match:"));
+        matchBox.addActionListener(e -> {
+            if (matchActionListener != null) {
+                matchActionListener.actionPerformed(e);
+            }
+        });
+        header.add(matchBox);
+        header.add(countLabel);
+        panel.add(header, BorderLayout.NORTH);
+
+        resultList.addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                int index = resultList.locationToIndex(e.getPoint());
+                if (e.getClickCount() == 2 && index >= 0 && openListener != null) {
+                    openListener.accept(index);
+                }
+            }
+        });
+        panel.add(new JScrollPane(resultList), BorderLayout.CENTER);
+        return panel;
+    }
+
+    private static class ResultListModel extends AbstractListModel<String> {
+        private List<String> results = new ArrayList<>();
+
+        void setResults(List<String> results) {
+            int previousSize = this.results.size();
+            this.results = results;
+            if (previousSize > 0) {
+                fireIntervalRemoved(this, 0, previousSize - 1);
+            }
+            if (!results.isEmpty()) {
+                fireIntervalAdded(this, 0, results.size() - 1);
+            }
+        }
+
+        @Override
+        public int getSize() {
+            return results.size();
+        }
+
+        @Override
+        public String getElementAt(int index) {
+            return results.get(index);
+        }
+    }
+}
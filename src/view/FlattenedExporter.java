@@ -0,0 +1,278 @@
+package view;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import utils.Constants;
+import utils.FileUtils;
+
+public class FlattenedExporter {
+    private final PhotoView view;
+    private final ForkJoinPool pool;
+    private final int tileSize;
+
+    public FlattenedExporter(PhotoView view) {
+        this(view, ForkJoinPool.commonPool(), Constants.EXPORT_TILE_SIZE);
+    }
+
+    public FlattenedExporter(PhotoView view, ForkJoinPool pool, int tileSize) {
+        this.view = view;
+        this.pool = pool;
+        this.tileSize = tileSize;
+    }
+
+    public void export(BufferedImage image, List<?> strokes, List<?> annotations, File file) throws IOException {
+        String format = formatOf(file);
+        if (format == null) {
+            throw new IOException("Unsupported export format: " + file.getName());
+        }
+        int width = image != null ? image.getWidth() : Constants.DEFAULT_WIDTH;
+        int height = image != null ? image.getHeight() : Constants.DEFAULT_HEIGHT;
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        // The previous file is only replaced once the new one is complete.
+        File temporary = FileUtils.temporaryFor(file);
+        boolean written = false;
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(temporary)) {
+            writer.setOutput(out);
+            RenderedImage source;
+            if ("png".equals(format)) {
+                source = new StripImage(image, strokes, annotations, width, height, BufferedImage.TYPE_INT_ARGB);
+            } else {
+                // The JDK JPEG writer copies any non-BufferedImage source in full, so the output
+                // canvas is rendered directly instead of being wrapped in a streaming source.
+                BufferedImage canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+                renderAll(canvas, image, strokes, annotations);
+                source = canvas;
+            }
+            writer.write(null, new IIOImage(source, null, null), writer.getDefaultWriteParam());
+            written = true;
+        } finally {
+            writer.dispose();
+            if (!written) {
+                temporary.delete();
+            }
+        }
+        FileUtils.replace(temporary, file);
+    }
+
+    public static String formatOf(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".png")) {
+            return "png";
+        } else if (name.endsWith(".jpg") || name.endsWith(".jpeg")) {
+            return "jpeg";
+        }
+        return null;
+    }
+
+    private void renderAll(BufferedImage canvas, BufferedImage image, List<?> strokes, List<?> annotations) {
+        List<ForkJoinTask<?>> tiles = new ArrayList<>();
+        for (int y = 0; y < canvas.getHeight(); y += tileSize) {
+            for (int x = 0; x < canvas.getWidth(); x += tileSize) {
+                int tileX = x;
+                int tileY = y;
+                int w = Math.min(tileSize, canvas.getWidth() - x);
+                int h = Math.min(tileSize, canvas.getHeight() - y);
+                tiles.add(ForkJoinTask.adapt(() ->
+                        renderTile(canvas.getSubimage(tileX, tileY, w, h), tileX, tileY, image, strokes, annotations)));
+            }
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tiles)));
+    }
+
+    private void renderTile(BufferedImage tile, int originX, int originY, BufferedImage image,
+                            List<?> strokes, List<?> annotations) {
+        Graphics2D g2 = tile.createGraphics();
+        try {
+            if (!tile.getColorModel().hasAlpha()) {
+                g2.setColor(Constants.WHITE);
+                g2.fillRect(0, 0, tile.getWidth(), tile.getHeight());
+            }
+            g2.translate(-originX, -originY);
+            view.drawFlattened(g2, image, strokes, annotations);
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    private class StripImage implements RenderedImage {
+        private final BufferedImage image;
+        private final List<?> strokes;
+        private final List<?> annotations;
+        private final int width;
+        private final int height;
+        private final ColorModel colorModel;
+        private final SampleModel sampleModel;
+        private final Map<Integer, ForkJoinTask<WritableRaster>> strips = new HashMap<>();
+
+        StripImage(BufferedImage image, List<?> strokes, List<?> annotations, int width, int height, int imageType) {
+            this.image = image;
+            this.strokes = strokes;
+            this.annotations = annotations;
+            this.width = width;
+            this.height = height;
+            this.colorModel = new BufferedImage(1, 1, imageType).getColorModel();
+            this.sampleModel = colorModel.createCompatibleSampleModel(width, tileSize);
+        }
+
+        private synchronized Raster strip(int index) {
+            strips.keySet().removeIf(k -> k < index);
+            ForkJoinTask<WritableRaster> current = strips.computeIfAbsent(index, this::submitStrip);
+            if (index + 1 < getNumYTiles()) {
+                strips.computeIfAbsent(index + 1, this::submitStrip);
+            }
+            return current.join();
+        }
+
+        private ForkJoinTask<WritableRaster> submitStrip(int index) {
+            return pool.submit(() -> renderStrip(index));
+        }
+
+        private WritableRaster renderStrip(int index) {
+            int stripY = index * tileSize;
+            int stripHeight = Math.min(tileSize, height - stripY);
+            WritableRaster raster = colorModel.createCompatibleWritableRaster(width, stripHeight);
+            List<ForkJoinTask<?>> tiles = new ArrayList<>();
+            for (int x = 0; x < width; x += tileSize) {
+                int tileX = x;
+                int w = Math.min(tileSize, width - x);
+                WritableRaster child = raster.createWritableChild(x, 0, w, stripHeight, 0, 0, null);
+                BufferedImage tile = new BufferedImage(colorModel, child, colorModel.isAlphaPremultiplied(), null);
+                tiles.add(ForkJoinTask.adapt(() -> renderTile(tile, tileX, stripY, image, strokes, annotations)));
+            }
+            ForkJoinTask.invokeAll(tiles);
+            return raster.createWritableTranslatedChild(0, stripY);
+        }
+
+        @Override
+        public Raster getData(Rectangle rect) {
+            Rectangle bounds = rect.intersection(new Rectangle(0, 0, width, height));
+            WritableRaster out = Raster.createWritableRaster(
+                    sampleModel.createCompatibleSampleModel(bounds.width, bounds.height), bounds.getLocation());
+            int first = bounds.y / tileSize;
+            int last = (bounds.y + bounds.height - 1) / tileSize;
+            for (int index = first; index <= last; index++) {
+                out.setRect(strip(index));
+            }
+            return out;
+        }
+
+        @Override
+        public Raster getData() {
+            return getData(new Rectangle(0, 0, width, height));
+        }
+
+        @Override
+        public WritableRaster copyData(WritableRaster raster) {
+            if (raster == null) {
+                return (WritableRaster) getData();
+            }
+            raster.setRect(getData(raster.getBounds()));
+            return raster;
+        }
+
+        @Override
+        public Raster getTile(int tileX, int tileY) {
+            return strip(tileY);
+        }
+
+        @Override
+        public Vector<RenderedImage> getSources() {
+            return null;
+        }
+
+        @Override
+        public Object getProperty(String name) {
+            return Image.UndefinedProperty;
+        }
+
+        @Override
+        public String[] getPropertyNames() {
+            return null;
+        }
+
+        @Override
+        public ColorModel getColorModel() {
+            return colorModel;
+        }
+
+        @Override
+        public SampleModel getSampleModel() {
+            return sampleModel;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getMinX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinY() {
+            return 0;
+        }
+
+        @Override
+        public int getNumXTiles() {
+            return 1;
+        }
+
+        @Override
+        public int getNumYTiles() {
+            return (height + tileSize - 1) / tileSize;
+        }
+
+        @Override
+        public int getMinTileX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinTileY() {
+            return 0;
+        }
+
+        @Override
+        public int getTileWidth() {
+            return width;
+        }
+
+        @Override
+        public int getTileHeight() {
+            return tileSize;
+        }
+
+        @Override
+        public int getTileGridXOffset() {
+            return 0;
+        }
+
+        @Override
+        public int getTileGridYOffset() {
+            return 0;
+        }
+    }
+}
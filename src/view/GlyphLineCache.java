@@ -0,0 +1,147 @@
+package view;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import interfaces.IAnnotation;
+import utils.FontMetricsService;
+import utils.MemoryAccountant;
+import utils.WordWrapUtils;
+
+public class GlyphLineCache implements MemoryAccountant.Evictable {
+    private static final long VECTOR_OVERHEAD_BYTES = 160;
+    private static final long GLYPH_BYTES = 16;
+    private static GlyphLineCache shared;
+
+    private final WordWrapUtils wordWrapper = new WordWrapUtils();
+    private final Map<IAnnotation, Slot> entries = new WeakHashMap<>();
+    private final ReferenceQueue<IAnnotation> collected = new ReferenceQueue<>();
+    private final MemoryAccountant memoryAccountant;
+    private long accountedBytes;
+
+    // Remembers the lines accounted for an annotation, so they can be released once the
+    // annotation is collected without summing the whole cache again.
+    private static final class Slot extends WeakReference<IAnnotation> {
+        Lines lines;
+
+        Slot(IAnnotation annotation, ReferenceQueue<IAnnotation> queue) {
+            super(annotation, queue);
+        }
+    }
+
+    public static class Lines {
+        final int textVersion;
+        final Font font;
+        final FontRenderContext fontRenderContext;
+        final int maxWidth;
+        final GlyphVector[] glyphs;
+        final int[] baselineOffsets;
+        final long bytes;
+
+        Lines(int textVersion, Font font, FontRenderContext fontRenderContext, int maxWidth,
+              GlyphVector[] glyphs, int[] baselineOffsets, long bytes) {
+            this.textVersion = textVersion;
+            this.font = font;
+            this.fontRenderContext = fontRenderContext;
+            this.maxWidth = maxWidth;
+            this.glyphs = glyphs;
+            this.baselineOffsets = baselineOffsets;
+            this.bytes = bytes;
+        }
+
+        boolean matches(int textVersion, Font font, FontRenderContext fontRenderContext, int maxWidth) {
+            return this.textVersion == textVersion && this.maxWidth == maxWidth
+                    && this.font.equals(font) && this.fontRenderContext.equals(fontRenderContext);
+        }
+    }
+
+    public GlyphLineCache(MemoryAccountant memoryAccountant) {
+        this.memoryAccountant = memoryAccountant;
+        memoryAccountant.register(MemoryAccountant.Category.LAYOUT_CACHE, this);
+    }
+
+    public static synchronized GlyphLineCache shared() {
+        if (shared == null) {
+            shared = new GlyphLineCache(MemoryAccountant.shared());
+        }
+        return shared;
+    }
+
+    // Shaping happens once per text, font, render context and wrap width; moves reuse the lines
+    // because baselines are stored relative to the annotation position.
+    public Lines linesFor(IAnnotation annotation, FontMetricsService.Metrics metrics,
+                          FontRenderContext fontRenderContext, int maxWidth) {
+        Font font = metrics.getFontMetrics().getFont();
+        int textVersion = annotation.getTextVersion();
+        synchronized (this) {
+            Slot slot = entries.get(annotation);
+            if (slot != null && slot.lines.matches(textVersion, font, fontRenderContext, maxWidth)) {
+                return slot.lines;
+            }
+        }
+        Lines lines = layout(annotation.getTextSequence(), textVersion, metrics, font, fontRenderContext, maxWidth);
+        long delta;
+        synchronized (this) {
+            Slot slot = entries.get(annotation);
+            if (slot == null) {
+                slot = new Slot(annotation, collected);
+                entries.put(annotation, slot);
+            }
+            delta = lines.bytes - (slot.lines != null ? slot.lines.bytes : 0) - releaseCollected();
+            slot.lines = lines;
+            accountedBytes += delta;
+        }
+        // Outside the lock: adding can run an eviction pass over every registered cache.
+        memoryAccountant.add(MemoryAccountant.Category.LAYOUT_CACHE, delta);
+        return lines;
+    }
+
+    private Lines layout(CharSequence text, int textVersion, FontMetricsService.Metrics metrics, Font font,
+                         FontRenderContext fontRenderContext, int maxWidth) {
+        List<GlyphVector> glyphs = new ArrayList<>();
+        List<Integer> offsets = new ArrayList<>();
+        long[] bytes = {0};
+        wordWrapper.layout(metrics, text, 0, maxWidth, (start, end, lineY) -> {
+            GlyphVector vector = font.createGlyphVector(fontRenderContext, text.subSequence(start, end).toString());
+            glyphs.add(vector);
+            offsets.add(lineY);
+            bytes[0] += VECTOR_OVERHEAD_BYTES + GLYPH_BYTES * vector.getNumGlyphs();
+        });
+        int[] baselineOffsets = new int[offsets.size()];
+        for (int i = 0; i < baselineOffsets.length; i++) {
+            baselineOffsets[i] = offsets.get(i);
+        }
+        return new Lines(textVersion, font, fontRenderContext, maxWidth,
+                glyphs.toArray(new GlyphVector[0]), baselineOffsets, bytes[0]);
+    }
+
+    private long releaseCollected() {
+        long bytes = 0;
+        for (Reference<? extends IAnnotation> reference; (reference = collected.poll()) != null; ) {
+            Lines lines = ((Slot) reference).lines;
+            if (lines != null) {
+                bytes += lines.bytes;
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public synchronized long evict(long bytesToFree) {
+        long freed = accountedBytes;
+        for (Slot slot : entries.values()) {
+            slot.lines = null;
+        }
+        entries.clear();
+        accountedBytes = 0;
+        memoryAccountant.release(MemoryAccountant.Category.LAYOUT_CACHE, freed);
+        return freed;
+    }
+}
@@ -0,0 +1,94 @@
+package view;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.Path2D;
+import java.util.Locale;
+import utils.Constants;
+import utils.Histogram;
+
+public class HistogramPanel extends JComponent {
+    private static final Color[] CHANNEL_COLORS = {
+            new Color(220, 40, 40, 110), new Color(40, 180, 40, 110), new Color(40, 80, 230, 110)};
+    private static final Color LUMA_COLOR = new Color(40, 40, 40);
+    private static final Color CLIPPED_COLOR = new Color(230, 120, 0);
+    private Histogram histogram;
+
+    public HistogramPanel() {
+        setPreferredSize(new Dimension(Constants.HISTOGRAM_WIDTH, Constants.HISTOGRAM_HEIGHT));
+        setOpaque(true);
+        setBackground(Color.WHITE);
+    }
+
+    public void setHistogram(Histogram histogram) {
+        this.histogram = histogram;
+        setToolTipText(describe(histogram));
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setColor(getBackground());
+        g2.fillRect(0, 0, getWidth(), getHeight());
+        if (histogram != null && histogram.getTotal() > 0) {
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            // One scale for all channels keeps their heights comparable; sqrt stops a single spike
+            // from flattening the rest.
+            int max = 0;
+            for (int channel = Histogram.RED; channel <= Histogram.LUMA; channel++) {
+                max = Math.max(max, histogram.max(channel));
+            }
+            double scale = (getHeight() - 1) / Math.sqrt(max);
+            for (int channel = Histogram.RED; channel <= Histogram.BLUE; channel++) {
+                g2.setColor(CHANNEL_COLORS[channel]);
+                g2.fill(outline(channel, scale, true));
+            }
+            g2.setColor(LUMA_COLOR);
+            g2.draw(outline(Histogram.LUMA, scale, false));
+            g2.setColor(CLIPPED_COLOR);
+            if (isClipped(0)) {
+                g2.fillRect(0, 0, 3, getHeight());
+            }
+            if (isClipped(255)) {
+                g2.fillRect(getWidth() - 3, 0, 3, getHeight());
+            }
+        }
+        g2.setColor(Color.GRAY);
+        g2.drawRect(0, 0, getWidth() - 1, getHeight() - 1);
+        g2.dispose();
+    }
+
+    private Shape outline(int channel, double scale, boolean closed) {
+        Path2D.Float path = new Path2D.Float();
+        double step = (getWidth() - 1) / 255.0;
+        int bottom = getHeight() - 1;
+        path.moveTo(0, closed ? bottom : bottom - Math.sqrt(histogram.count(channel, 0)) * scale);
+        for (int value = 0; value < 256; value++) {
+            path.lineTo(value * step, bottom - Math.sqrt(histogram.count(channel, value)) * scale);
+        }
+        if (closed) {
+            path.lineTo(getWidth() - 1, bottom);
+            path.closePath();
+        }
+        return path;
+    }
+
+    private boolean isClipped(int value) {
+        for (int channel = Histogram.RED; channel <= Histogram.BLUE; channel++) {
+            if (histogram.fractionAt(channel, value) >= Constants.HISTOGRAM_CLIP_WARNING) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String describe(Histogram histogram) {
+        if (histogram == null || histogram.getTotal() == 0) {
+            return null;
+        }
+        String text = String.format(Locale.ROOT, "Shadows clipped %.1f%%, highlights clipped %.1f%%",
+                histogram.fractionAt(Histogram.LUMA, 0) * 100, histogram.fractionAt(Histogram.LUMA, 255) * 100);
+        return histogram.isExact() ? text : text + " (sampled)";
+    }
+}
@@ -2,24 +2,57 @@ package view;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.io.File;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 import utils.Constants;
 import utils.DrawingUtils;
+import utils.Histogram;
+import utils.ImageAdjustments;
+import utils.PaintMetrics;
+import utils.RasterTransform;
 import utils.TextUtils;
 
 public class PhotoView {
+    private static final BasicStroke SELECTION_STROKE = new BasicStroke(1f, BasicStroke.CAP_BUTT,
+            BasicStroke.JOIN_MITER, 10f, new float[] {4f, 4f}, 0f);
+    private static final Font HUD_FONT = new Font(Font.MONOSPACED, Font.PLAIN, Constants.FONT_SIZE);
     private final DrawingUtils drawingRenderer = new DrawingUtils();
     private final AnnotationRenderer annotationRenderer = new AnnotationRenderer();
     private final StrokeRenderer strokeRenderer = new StrokeRenderer();
+    private final BrowseView browseView = new BrowseView();
+    private final AdjustmentsPanel adjustmentsPanel = new AdjustmentsPanel();
+    private JDialog adjustmentsDialog;
+    private final HistogramPanel histogramPanel = new HistogramPanel();
+    private final List<JToggleButton> categoryButtons = new ArrayList<>();
+    private JRadioButtonMenuItem photoItem;
+    private JPanel contentPanel;
+    private final JTabbedPane documentTabs = new JTabbedPane(JTabbedPane.TOP, JTabbedPane.SCROLL_TAB_LAYOUT);
+    private boolean updatingTabs;
     
     private java.awt.event.ActionListener importActionListener;
     private java.awt.event.ActionListener deleteActionListener;
+    private java.awt.event.ActionListener closeActionListener;
+    private java.awt.event.ActionListener exportActionListener;
+    private java.awt.event.ActionListener saveActionListener;
+    private java.awt.event.ActionListener libraryActionListener;
     private java.awt.event.ActionListener colorActionListener;
+    private java.awt.event.ActionListener hudActionListener;
+    private java.awt.event.ActionListener recordActionListener;
+    private java.awt.event.ActionListener photoModeActionListener;
+    private java.awt.event.ActionListener browseModeActionListener;
+    private java.awt.event.ActionListener autoLevelsActionListener;
+    private BiConsumer<String, Boolean> categoryListener;
+    private IntConsumer documentSelectionListener;
+    private Consumer<Tool> toolListener;
+    private Consumer<RasterTransform> transformListener;
     private Consumer<String> statusUpdateListener;
+    private PaintMetrics paintMetrics;
     
     public PhotoView() {
     }
@@ -33,98 +66,263 @@ public class PhotoView {
         this.deleteActionListener = listener;
     }
     
+    public void setCloseActionListener(java.awt.event.ActionListener listener) {
+        this.closeActionListener = listener;
+    }
+    
+    public void setAdjustmentListener(BiConsumer<ImageAdjustments, Boolean> listener) {
+        adjustmentsPanel.setAdjustmentListener(listener);
+    }
+
+    public void setAdjustments(ImageAdjustments adjustments) {
+        adjustmentsPanel.setAdjustments(adjustments);
+    }
+
+    public void setAutoLevelsActionListener(java.awt.event.ActionListener listener) {
+        this.autoLevelsActionListener = listener;
+    }
+
+    public void setHistogram(Histogram histogram) {
+        histogramPanel.setHistogram(histogram);
+    }
+
+    public void setTransformListener(Consumer<RasterTransform> listener) {
+        this.transformListener = listener;
+    }
+
+    public void setToolListener(Consumer<Tool> listener) {
+        this.toolListener = listener;
+    }
+    
+    public void setDocumentSelectionListener(IntConsumer listener) {
+        this.documentSelectionListener = listener;
+    }
+    
+    public void setExportActionListener(java.awt.event.ActionListener listener) {
+        this.exportActionListener = listener;
+    }
+    
+    public void setSaveActionListener(java.awt.event.ActionListener listener) {
+        this.saveActionListener = listener;
+    }
+    
+    public void setLibraryActionListener(java.awt.event.ActionListener listener) {
+        this.libraryActionListener = listener;
+    }
+    
     public void setColorActionListener(java.awt.event.ActionListener listener) {
         this.colorActionListener = listener;
     }
     
+    public void setHudActionListener(java.awt.event.ActionListener listener) {
+        this.hudActionListener = listener;
+    }
+    
+    public void setRecordActionListener(java.awt.event.ActionListener listener) {
+        this.recordActionListener = listener;
+    }
+    
+    public void setPhotoModeActionListener(java.awt.event.ActionListener listener) {
+        this.photoModeActionListener = listener;
+    }
+    
+    public void setBrowseModeActionListener(java.awt.event.ActionListener listener) {
+        this.browseModeActionListener = listener;
+    }
+    
+    public void setCategoryListener(BiConsumer<String, Boolean> listener) {
+        this.categoryListener = listener;
+    }
+    
+    public BrowseView getBrowseView() {
+        return browseView;
+    }
+    
+    public void setPaintMetrics(PaintMetrics paintMetrics) {
+        this.paintMetrics = paintMetrics;
+    }
+    
     public void setStatusUpdateListener(Consumer<String> listener) {
         this.statusUpdateListener = listener;
     }
 
     public void draw(Graphics g, JComponent c, boolean isFlipped, boolean annotationsVisible, BufferedImage image, 
                     List<?> strokes, List<?> annotations, Object currentTextAnnotation, Object selectedObject) {
+        draw(g, c, isFlipped, annotationsVisible, image, null, strokes, annotations, currentTextAnnotation, selectedObject);
+    }
+
+    public void draw(Graphics g, JComponent c, boolean isFlipped, boolean annotationsVisible, BufferedImage image,
+                    Dimension photoSize, List<?> strokes, List<?> annotations, Object currentTextAnnotation,
+                    Object selectedObject) {
         Graphics2D g2 = (Graphics2D) g.create();
+        Dimension surface = surfaceSize(image, photoSize);
 
         try {
-            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            applyRenderingHints(g2);
             
+            long start = System.nanoTime();
             drawBackground(g2, c);
+            start = recordLayer(PaintMetrics.Layer.BACKGROUND, start);
             
             if (isFlipped) {
-                drawPhotoBack(g2, c, image);
-                if (annotationsVisible) {
-                    drawStrokes(g2, strokes, selectedObject);
-                    drawAnnotations(g2, annotations, image, currentTextAnnotation, selectedObject);
-                }
-                } else {
-                drawPhoto(g2, c, image, isFlipped);
-                if (annotationsVisible) {
-                    drawStrokes(g2, strokes, selectedObject);
-                    drawAnnotations(g2, annotations, image, currentTextAnnotation, selectedObject);
+                drawPhotoBack(g2, c, image, surface);
+            } else if (image == null && photoSize != null) {
+                drawPlaceholder(g2, photoSize);
+            } else {
+                drawPhoto(g2, c, image, surface);
+            }
+            start = recordLayer(PaintMetrics.Layer.PHOTO, start);
+            
+            if (annotationsVisible) {
+                if (image != null || photoSize != null) {
+                    // Strokes that straddle a crop edge are clipped rather than drawn past the photo.
+                    g2.clipRect(0, 0, surface.width, surface.height);
                 }
+                drawStrokes(g2, strokes, selectedObject);
+                start = recordLayer(PaintMetrics.Layer.STROKES, start);
+                drawAnnotations(g2, annotations, surface, currentTextAnnotation, selectedObject);
+                recordLayer(PaintMetrics.Layer.ANNOTATIONS, start);
+            }
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    private long recordLayer(PaintMetrics.Layer layer, long start) {
+        if (paintMetrics == null) {
+            return start;
+        }
+        long now = System.nanoTime();
+        paintMetrics.record(layer, now - start);
+        return now;
+    }
+
+    public void drawSelectionOverlay(Graphics g, Rectangle selectionBounds, Shape rubberBand) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.setColor(Constants.SELECTION_COLOR);
+            g2.setStroke(SELECTION_STROKE);
+            if (selectionBounds != null) {
+                g2.drawRect(selectionBounds.x, selectionBounds.y, selectionBounds.width, selectionBounds.height);
+            }
+            if (rubberBand != null) {
+                g2.draw(rubberBand);
+            }
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    public void drawPerformanceHud(Graphics g, Rectangle visible, List<String> lines) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.setFont(HUD_FONT);
+            FontMetrics fm = g2.getFontMetrics();
+            int width = 0;
+            for (String line : lines) {
+                width = Math.max(width, fm.stringWidth(line));
+            }
+            int x = visible.x + Constants.TEXT_MARGIN;
+            int y = visible.y + Constants.TEXT_MARGIN;
+            int lineHeight = fm.getHeight();
+            g2.setColor(Constants.HUD_BACKGROUND);
+            g2.fillRect(x, y, width + 2 * Constants.TEXT_MARGIN, lines.size() * lineHeight + Constants.TEXT_MARGIN);
+            g2.setColor(Constants.WHITE);
+            int baseline = y + Constants.TEXT_MARGIN / 2 + fm.getAscent();
+            for (String line : lines) {
+                g2.drawString(line, x + Constants.TEXT_MARGIN, baseline);
+                baseline += lineHeight;
             }
         } finally {
             g2.dispose();
         }
     }
 
+    public void drawFlattened(Graphics2D g2, BufferedImage image, List<?> strokes, List<?> annotations) {
+        applyRenderingHints(g2);
+        drawPhoto(g2, null, image, surfaceSize(image, null));
+        drawAnnotationLayers(g2, image, strokes, annotations);
+    }
+
+    public void drawAnnotationLayers(Graphics2D g2, BufferedImage image, List<?> strokes, List<?> annotations) {
+        applyRenderingHints(g2);
+        drawStrokes(g2, strokes, null);
+        drawAnnotations(g2, annotations, surfaceSize(image, null), null, null);
+    }
+
+    // An explicit photo size wins so placeholders and previews cover the real photo area.
+    private Dimension surfaceSize(BufferedImage image, Dimension photoSize) {
+        if (photoSize != null) {
+            return photoSize;
+        } else if (image != null) {
+            return new Dimension(image.getWidth(), image.getHeight());
+        }
+        return new Dimension(Constants.DEFAULT_WIDTH, Constants.DEFAULT_HEIGHT);
+    }
+
+    private void drawPlaceholder(Graphics2D g2, Dimension photoSize) {
+        drawingRenderer.drawWhiteSurface(g2, photoSize.width, photoSize.height);
+        g2.setColor(Constants.LIGHT_GRAY);
+        g2.setFont(TextUtils.createBoldFont());
+        g2.drawString(Constants.LOADING_TEXT, Constants.TEXT_MARGIN, Constants.TEXT_MARGIN + g2.getFontMetrics().getAscent());
+    }
+
+    private void applyRenderingHints(Graphics2D g2) {
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+    }
+
     private void drawBackground(Graphics2D g2, JComponent c) {
         drawingRenderer.drawCheckerboardBackground(g2, c);
     }
 
-    private void drawPhoto(Graphics2D g2, JComponent c, BufferedImage image, boolean isFlipped) {
+    private void drawPhoto(Graphics2D g2, JComponent c, BufferedImage image, Dimension surface) {
         if (image != null) {
             int w = image.getWidth();
-            if (isFlipped) {
-                AffineTransform tx = AffineTransform.getScaleInstance(-1, 1);
-                tx.translate(-w, 0);
-                g2.drawImage(image, tx, null);
+            if (w != surface.width || image.getHeight() != surface.height) {
+                // Downsampled previews are stretched over the full photo area.
+                Object interpolation = g2.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+                g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g2.drawImage(image, 0, 0, surface.width, surface.height, c);
+                if (interpolation != null) {
+                    g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+                }
             } else {
                 g2.drawImage(image, 0, 0, c);
             }
         }
     }
 
-    private void drawPhotoBack(Graphics2D g2, JComponent c, BufferedImage image) {
-        int surfaceWidth, surfaceHeight;
+    private void drawPhotoBack(Graphics2D g2, JComponent c, BufferedImage image, Dimension surface) {
         if (image != null) {
-            surfaceWidth = image.getWidth();
-            surfaceHeight = image.getHeight();
+            drawingRenderer.drawWhiteSurface(g2, surface.width, surface.height);
         } else {
-            surfaceWidth = c.getWidth();
-            surfaceHeight = c.getHeight();
+            drawingRenderer.drawWhiteSurface(g2, c.getWidth(), c.getHeight());
         }
-        drawingRenderer.drawWhiteSurface(g2, surfaceWidth, surfaceHeight);
     }
 
     private void drawStrokes(Graphics2D g2, List<?> strokes, Object selectedObject) {
-        for (Object stroke : strokes) {
-            strokeRenderer.drawStroke(g2, stroke);
-        }
+        strokeRenderer.drawStrokes(g2, strokes);
     }
 
 
-    private void drawAnnotations(Graphics2D g2, List<?> annotations, BufferedImage image, Object currentTextAnnotation, Object selectedObject) {
-        int surfaceWidth, surfaceHeight;
-        if (image != null) {
-            surfaceWidth = image.getWidth();
-            surfaceHeight = image.getHeight();
-        } else {
-            surfaceWidth = Constants.DEFAULT_WIDTH;
-            surfaceHeight = Constants.DEFAULT_HEIGHT;
-        }
+    private void drawAnnotations(Graphics2D g2, List<?> annotations, Dimension surface, Object currentTextAnnotation, Object selectedObject) {
+        int surfaceWidth = surface.width;
+        int surfaceHeight = surface.height;
         
         g2.setClip(0, 0, surfaceWidth, surfaceHeight);
         for (Object annotation : annotations) {
 
+            boolean isActive = (annotation == currentTextAnnotation);
             if (!isEmpty(annotation)) {
 
-                boolean isActive = (annotation == currentTextAnnotation);
                 annotationRenderer.drawAnnotation(g2, annotation, surfaceWidth);
                 
 
             }
+            if (isActive || (annotation == selectedObject && isEditing(annotation))) {
+                annotationRenderer.drawCaret(g2, annotation, surfaceWidth);
+            }
         }
     }
 
@@ -169,16 +367,18 @@ public class PhotoView {
     }
 
     public Dimension getPreferredSize(BufferedImage image) {
-        if (image != null) {
-            return new Dimension(image.getWidth(), image.getHeight());
-        }
-        return new Dimension(Constants.DEFAULT_WIDTH, Constants.DEFAULT_HEIGHT);
+        return surfaceSize(image, null);
+    }
+
+    public Dimension getPreferredSize(Dimension photoSize) {
+        return surfaceSize(null, photoSize);
     }
 
     public JMenuBar createMenuBar() {
         JMenuBar menuBar = new JMenuBar();
         menuBar.add(createFileMenu());
         menuBar.add(createViewMenu());
+        menuBar.add(createImageMenu());
         return menuBar;
     }
     
@@ -186,7 +386,11 @@ public class PhotoView {
         JMenu fileMenu = new JMenu("File");
         
         fileMenu.add(createImportMenuItem());
+        fileMenu.add(createLibraryMenuItem());
+        fileMenu.add(createSaveMenuItem());
+        fileMenu.add(createExportMenuItem());
         fileMenu.add(createDeleteMenuItem());
+        fileMenu.add(createCloseMenuItem());
         fileMenu.add(createQuitMenuItem());
         
         return fileMenu;
@@ -202,6 +406,36 @@ public class PhotoView {
         return importItem;
     }
     
+    private JMenuItem createLibraryMenuItem() {
+        JMenuItem libraryItem = new JMenuItem("Add Library Folder...");
+        libraryItem.addActionListener(e -> {
+            if (libraryActionListener != null) {
+                libraryActionListener.actionPerformed(e);
+            }
+        });
+        return libraryItem;
+    }
+    
+    private JMenuItem createSaveMenuItem() {
+        JMenuItem saveItem = new JMenuItem("Save Annotations");
+        saveItem.addActionListener(e -> {
+            if (saveActionListener != null) {
+                saveActionListener.actionPerformed(e);
+            }
+        });
+        return saveItem;
+    }
+    
+    private JMenuItem createExportMenuItem() {
+        JMenuItem exportItem = new JMenuItem("Export");
+        exportItem.addActionListener(e -> {
+            if (exportActionListener != null) {
+                exportActionListener.actionPerformed(e);
+            }
+        });
+        return exportItem;
+    }
+    
     private JMenuItem createDeleteMenuItem() {
         JMenuItem deleteItem = new JMenuItem("Delete");
         deleteItem.addActionListener(e -> {
@@ -212,6 +446,16 @@ public class PhotoView {
         return deleteItem;
     }
     
+    private JMenuItem createCloseMenuItem() {
+        JMenuItem closeItem = new JMenuItem("Close Tab");
+        closeItem.addActionListener(e -> {
+            if (closeActionListener != null) {
+                closeActionListener.actionPerformed(e);
+            }
+        });
+        return closeItem;
+    }
+    
     private JMenuItem createQuitMenuItem() {
         JMenuItem quitItem = new JMenuItem("Quit");
         quitItem.addActionListener(e -> System.exit(0));
@@ -222,21 +466,85 @@ public class PhotoView {
         JMenu viewMenu = new JMenu("View");
         
         ButtonGroup viewGroup = new ButtonGroup();
-        JRadioButtonMenuItem photoItem = createPhotoMenuItem();
+        photoItem = createPhotoMenuItem();
         JRadioButtonMenuItem browseItem = createBrowseMenuItem();
         
         viewGroup.add(photoItem);
         viewGroup.add(browseItem);
         viewMenu.add(photoItem);
         viewMenu.add(browseItem);
+        viewMenu.addSeparator();
+        viewMenu.add(createHudMenuItem());
+        viewMenu.add(createRecordMenuItem());
         
         return viewMenu;
     }
     
+    private JMenu createImageMenu() {
+        JMenu imageMenu = new JMenu("Image");
+        imageMenu.add(createAdjustMenuItem());
+        imageMenu.addSeparator();
+        for (RasterTransform transform : RasterTransform.values()) {
+            imageMenu.add(createTransformMenuItem(transform));
+        }
+        return imageMenu;
+    }
+
+    private JMenuItem createTransformMenuItem(RasterTransform transform) {
+        JMenuItem transformItem = new JMenuItem(transform.getLabel());
+        transformItem.addActionListener(e -> {
+            if (transformListener != null) {
+                transformListener.accept(transform);
+            }
+        });
+        return transformItem;
+    }
+
+    private JMenuItem createAdjustMenuItem() {
+        JMenuItem adjustItem = new JMenuItem("Adjust...");
+        adjustItem.addActionListener(e -> showAdjustmentsDialog());
+        return adjustItem;
+    }
+
+    private void showAdjustmentsDialog() {
+        if (adjustmentsDialog == null) {
+            Window owner = contentPanel != null ? SwingUtilities.getWindowAncestor(contentPanel) : null;
+            adjustmentsDialog = new JDialog(owner, "Adjust Photo", Dialog.ModalityType.MODELESS);
+            adjustmentsDialog.setContentPane(adjustmentsPanel.createPanel());
+            adjustmentsDialog.pack();
+            adjustmentsDialog.setLocationRelativeTo(owner);
+        }
+        adjustmentsDialog.setVisible(true);
+    }
+    
+    private JCheckBoxMenuItem createHudMenuItem() {
+        JCheckBoxMenuItem hudItem = new JCheckBoxMenuItem("Performance HUD");
+        hudItem.addActionListener(e -> {
+            if (hudActionListener != null) {
+                hudActionListener.actionPerformed(e);
+            }
+        });
+        return hudItem;
+    }
+    
+    private JCheckBoxMenuItem createRecordMenuItem() {
+        JCheckBoxMenuItem recordItem = new JCheckBoxMenuItem("Record Input");
+        recordItem.addActionListener(e -> {
+            if (recordActionListener != null) {
+                recordActionListener.actionPerformed(e);
+            }
+        });
+        return recordItem;
+    }
+    
     private JRadioButtonMenuItem createPhotoMenuItem() {
         JRadioButtonMenuItem photoItem = new JRadioButtonMenuItem("Photo");
         photoItem.setSelected(true);
         photoItem.addActionListener(e -> {
+            showCard(Constants.PHOTO_CARD);
+            if (photoModeActionListener != null) {
+                photoModeActionListener.actionPerformed(e);
+            }
         });
         return photoItem;
     }
@@ -244,10 +552,83 @@ public class PhotoView {
     private JRadioButtonMenuItem createBrowseMenuItem() {
         JRadioButtonMenuItem browseItem = new JRadioButtonMenuItem("Browse");
         browseItem.addActionListener(e -> {
+            showCard(Constants.BROWSE_CARD);
+            if (browseModeActionListener != null) {
+                browseModeActionListener.actionPerformed(e);
+            }
         });
         return browseItem;
     }
 
+    public JPanel createContentPane(JComponent photoPane) {
+        documentTabs.addChangeListener(e -> {
+            if (!updatingTabs && documentSelectionListener != null && documentTabs.getSelectedIndex() >= 0) {
+                documentSelectionListener.accept(documentTabs.getSelectedIndex());
+            }
+        });
+        JPanel photoPanel = new JPanel(new BorderLayout());
+        photoPanel.add(documentTabs, BorderLayout.NORTH);
+        photoPanel.add(photoPane, BorderLayout.CENTER);
+        contentPanel = new JPanel(new CardLayout());
+        contentPanel.add(photoPanel, Constants.PHOTO_CARD);
+        contentPanel.add(browseView.createPanel(), Constants.BROWSE_CARD);
+        return contentPanel;
+    }
+
+    // Tabs only carry titles; every document paints into the one shared photo pane below them.
+    public void addDocumentTab(String title) {
+        JPanel placeholder = new JPanel();
+        placeholder.setPreferredSize(new Dimension());
+        updatingTabs = true;
+        documentTabs.addTab(title, placeholder);
+        updatingTabs = false;
+    }
+
+    public void setDocumentTitle(int index, String title) {
+        documentTabs.setTitleAt(index, title);
+    }
+
+    public void removeDocumentTab(int index) {
+        updatingTabs = true;
+        documentTabs.removeTabAt(index);
+        updatingTabs = false;
+    }
+
+    public void selectDocumentTab(int index) {
+        updatingTabs = true;
+        documentTabs.setSelectedIndex(index);
+        updatingTabs = false;
+    }
+
+    public void showPhotoMode() {
+        if (photoItem != null) {
+            photoItem.setSelected(true);
+        }
+        showCard(Constants.PHOTO_CARD);
+    }
+
+    private void showCard(String card) {
+        if (contentPanel != null) {
+            ((CardLayout) contentPanel.getLayout()).show(contentPanel, card);
+        }
+    }
+
+    public void setCategorySelection(Collection<String> selected) {
+        for (JToggleButton button : categoryButtons) {
+            button.setSelected(selected.contains(button.getText()));
+        }
+    }
+
+    public List<String> getSelectedCategories() {
+        List<String> selected = new ArrayList<>();
+        for (JToggleButton button : categoryButtons) {
+            if (button.isSelected()) {
+                selected.add(button.getText());
+            }
+        }
+        return selected;
+    }
+
     public JPanel createToolBar() {
         JPanel toolBarPanel = new JPanel();
         
@@ -260,15 +641,38 @@ public class PhotoView {
         });
         toolBarPanel.add(colorButton);
         
+        ButtonGroup toolGroup = new ButtonGroup();
+        for (Tool tool : Tool.values()) {
+            JToggleButton toolButton = new JToggleButton(tool.getLabel(), tool == Tool.DRAW);
+            toolButton.addActionListener(e -> {
+                if (toolListener != null) {
+                    toolListener.accept(tool);
+                }
+            });
+            toolGroup.add(toolButton);
+            toolBarPanel.add(toolButton);
+        }
+
+        JButton autoLevelsButton = new JButton("Auto Levels");
+        autoLevelsButton.addActionListener(e -> {
+            if (autoLevelsActionListener != null) {
+                autoLevelsActionListener.actionPerformed(e);
+            }
+        });
+        toolBarPanel.add(autoLevelsButton);
+        toolBarPanel.add(histogramPanel);
+        
 
-        String[] categories = {"People", "Foods"};
-        for (String category : categories) {
+        for (String category : Constants.CATEGORIES) {
             JToggleButton categoryToggleButton = new JToggleButton(category);
             categoryToggleButton.addActionListener(e -> {
-                if (statusUpdateListener != null) {
+                if (categoryListener != null) {
+                    categoryListener.accept(category, categoryToggleButton.isSelected());
+                } else if (statusUpdateListener != null) {
                     statusUpdateListener.accept(category + " button clicked");
                 }
             });
+            categoryButtons.add(categoryToggleButton);
             toolBarPanel.add(categoryToggleButton);
         }
         toolBarPanel.setBackground(Color.LIGHT_GRAY);
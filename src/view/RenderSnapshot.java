@@ -0,0 +1,156 @@
+package view;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
+import java.util.List;
+import interfaces.IAnnotation;
+import interfaces.IStroke;
+
+// Immutable copies of strokes and annotations, taken on the event thread before an export so
+// its worker threads never read objects the editor keeps changing.
+public final class RenderSnapshot {
+    private RenderSnapshot() {
+    }
+
+    public static List<IStroke> strokes(List<?> strokes) {
+        List<IStroke> copies = new ArrayList<>(strokes.size());
+        for (Object stroke : strokes) {
+            if (stroke instanceof IStroke && !((IStroke) stroke).isEmpty()) {
+                copies.add(new StrokeCopy((IStroke) stroke));
+            }
+        }
+        return copies;
+    }
+
+    public static List<IAnnotation> annotations(List<?> annotations) {
+        List<IAnnotation> copies = new ArrayList<>(annotations.size());
+        for (Object annotation : annotations) {
+            if (annotation instanceof IAnnotation) {
+                copies.add(new AnnotationCopy((IAnnotation) annotation));
+            }
+        }
+        return copies;
+    }
+
+    private static final class StrokeCopy implements IStroke {
+        private final Color color;
+        private final float strokeWidth;
+        private final int[] coordinates;
+        private volatile Shape shape;
+
+        StrokeCopy(IStroke stroke) {
+            this.color = stroke.getColor();
+            this.strokeWidth = stroke.getStrokeWidth();
+            this.coordinates = stroke.getCoordinates();
+        }
+
+        @Override
+        public Color getColor() {
+            return color;
+        }
+
+        @Override
+        public float getStrokeWidth() {
+            return strokeWidth;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return coordinates.length == 0;
+        }
+
+        // Built by whichever tile asks first; a duplicate build on another tile is harmless.
+        @Override
+        public Shape getShape() {
+            Shape current = shape;
+            if (current == null) {
+                Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, Math.max(2, coordinates.length / 2));
+                path.moveTo(coordinates[0], coordinates[1]);
+                for (int i = 2; i < coordinates.length; i += 2) {
+                    path.lineTo(coordinates[i], coordinates[i + 1]);
+                }
+                current = path;
+                shape = current;
+            }
+            return current;
+        }
+
+        @Override
+        public int getTranslateX() {
+            return 0;
+        }
+
+        @Override
+        public int getTranslateY() {
+            return 0;
+        }
+
+        @Override
+        public int[] getCoordinates() {
+            return coordinates.clone();
+        }
+    }
+
+    private static final class AnnotationCopy implements IAnnotation {
+        private final String text;
+        private final int textVersion;
+        private final int caret;
+        private final Point position;
+        private final Color color;
+        private final boolean editing;
+        private final boolean committed;
+
+        AnnotationCopy(IAnnotation annotation) {
+            this.text = annotation.getTextSequence().toString();
+            this.textVersion = annotation.getTextVersion();
+            this.caret = annotation.getCaret();
+            this.position = new Point(annotation.getPosition());
+            this.color = annotation.getColor();
+            this.editing = annotation.isEditing();
+            this.committed = annotation.isCommitted();
+        }
+
+        @Override
+        public CharSequence getTextSequence() {
+            return text;
+        }
+
+        @Override
+        public int getTextVersion() {
+            return textVersion;
+        }
+
+        @Override
+        public int getCaret() {
+            return caret;
+        }
+
+        @Override
+        public Point getPosition() {
+            return new Point(position);
+        }
+
+        @Override
+        public Color getColor() {
+            return color;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return text.isEmpty();
+        }
+
+        @Override
+        public boolean isEditing() {
+            return editing;
+        }
+
+        @Override
+        public boolean isCommitted() {
+            return committed;
+        }
+    }
+}
@@ -1,15 +1,34 @@
 package view;
 
 import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import interfaces.IStroke;
 
 public class StrokeRenderer {
+    // Export tiles and batch rendering share this renderer with the event thread.
+    private final Map<Float, BasicStroke> basicStrokes = new ConcurrentHashMap<>();
+    private volatile Batches batches;
+
     public void drawStroke(Graphics2D g2, Object stroke) {
         if (isEmpty(stroke)) return;
         
         g2.setColor(getColor(stroke));
-        g2.setStroke(new BasicStroke(getStrokeWidth(stroke), 
-            BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        g2.setStroke(basicStrokeFor(getStrokeWidth(stroke)));
+        
+        if (stroke instanceof IStroke) {
+            IStroke shaped = (IStroke) stroke;
+            int dx = shaped.getTranslateX();
+            int dy = shaped.getTranslateY();
+            g2.translate(dx, dy);
+            g2.draw(shaped.getShape());
+            g2.translate(-dx, -dy);
+            return;
+        }
         
         List<Point> points = getPoints(stroke);
         if (points.size() < 2) return;
@@ -21,8 +40,144 @@ public class StrokeRenderer {
             prevPoint = currentPoint;
         }
     }
+
+    // Runs of consecutive opaque strokes with the same color and width are drawn as one merged
+    // path; translucent strokes still draw one by one so their overlaps blend as before. The
+    // merged paths are kept until the list, or any stroke's shape, offset or style, changes.
+    public void drawStrokes(Graphics2D g2, List<?> strokes) {
+        Batches current = batches;
+        if (current == null || !current.matches(strokes)) {
+            current = new Batches(strokes);
+            batches = current;
+        }
+        Color color = null;
+        float width = -1;
+        for (Batch batch : current.batches) {
+            if (batch.path == null && !(batch.stroke instanceof IStroke)) {
+                drawStroke(g2, batch.stroke);
+                color = null;
+                width = -1;
+                continue;
+            }
+            if (!batch.color.equals(color)) {
+                color = batch.color;
+                g2.setColor(color);
+            }
+            if (batch.width != width) {
+                width = batch.width;
+                g2.setStroke(basicStrokeFor(width));
+            }
+            if (batch.path != null) {
+                g2.draw(batch.path);
+                continue;
+            }
+            IStroke shaped = (IStroke) batch.stroke;
+            int dx = shaped.getTranslateX();
+            int dy = shaped.getTranslateY();
+            g2.translate(dx, dy);
+            g2.draw(shaped.getShape());
+            g2.translate(-dx, -dy);
+        }
+    }
+
+    // Either a merged path of opaque strokes, or a single stroke drawn on its own.
+    private static final class Batch {
+        final Color color;
+        final float width;
+        final Path2D.Float path;
+        final Object stroke;
+
+        Batch(Color color, float width, Path2D.Float path, Object stroke) {
+            this.color = color;
+            this.width = width;
+            this.path = path;
+            this.stroke = stroke;
+        }
+    }
+
+    // Immutable once built, so the event thread and export tiles can share whichever was last
+    // published.
+    private static final class Batches {
+        final Object[] strokes;
+        final Shape[] shapes;
+        final Color[] colors;
+        final float[] widths;
+        final int[] offsets;
+        final List<Batch> batches = new ArrayList<>();
+
+        Batches(List<?> source) {
+            int n = source.size();
+            strokes = source.toArray();
+            shapes = new Shape[n];
+            colors = new Color[n];
+            widths = new float[n];
+            offsets = new int[n * 2];
+            Path2D.Float run = null;
+            for (int i = 0; i < n; i++) {
+                if (!(strokes[i] instanceof IStroke)) {
+                    run = null;
+                    batches.add(new Batch(null, 0, null, strokes[i]));
+                    continue;
+                }
+                IStroke stroke = (IStroke) strokes[i];
+                if (stroke.isEmpty()) {
+                    continue;
+                }
+                shapes[i] = stroke.getShape();
+                colors[i] = stroke.getColor();
+                widths[i] = stroke.getStrokeWidth();
+                offsets[i * 2] = stroke.getTranslateX();
+                offsets[i * 2 + 1] = stroke.getTranslateY();
+                if (colors[i].getAlpha() < 255) {
+                    run = null;
+                    batches.add(new Batch(colors[i], widths[i], null, stroke));
+                    continue;
+                }
+                Batch last = batches.isEmpty() ? null : batches.get(batches.size() - 1);
+                if (run == null || !colors[i].equals(last.color) || widths[i] != last.width) {
+                    run = new Path2D.Float();
+                    batches.add(new Batch(colors[i], widths[i], run, null));
+                }
+                run.append(shapes[i].getPathIterator(
+                        AffineTransform.getTranslateInstance(offsets[i * 2], offsets[i * 2 + 1])), false);
+            }
+        }
+
+        boolean matches(List<?> source) {
+            if (source.size() != strokes.length) {
+                return false;
+            }
+            for (int i = 0; i < strokes.length; i++) {
+                Object stroke = source.get(i);
+                if (stroke != strokes[i]) {
+                    return false;
+                }
+                if (!(stroke instanceof IStroke)) {
+                    continue;
+                }
+                IStroke shaped = (IStroke) stroke;
+                Shape shape = shaped.isEmpty() ? null : shaped.getShape();
+                if (shape != shapes[i]) {
+                    return false;
+                }
+                if (shape != null && (!shaped.getColor().equals(colors[i]) || shaped.getStrokeWidth() != widths[i]
+                        || shaped.getTranslateX() != offsets[i * 2] || shaped.getTranslateY() != offsets[i * 2 + 1])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private BasicStroke basicStrokeFor(float width) {
+        return basicStrokes.computeIfAbsent(width,
+                w -> new BasicStroke(w, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+    }
     
     private boolean isEmpty(Object stroke) {
+        if (stroke instanceof IStroke) {
+            return ((IStroke) stroke).isEmpty();
+        }
         try {
             return (Boolean) stroke.getClass().getMethod("isEmpty").invoke(stroke);
         } catch (Exception e) {
@@ -31,6 +186,9 @@ public class StrokeRenderer {
     }
     
     private Color getColor(Object stroke) {
+        if (stroke instanceof IStroke) {
+            return ((IStroke) stroke).getColor();
+        }
         try {
             return (Color) stroke.getClass().getMethod("getColor").invoke(stroke);
         } catch (Exception e) {
@@ -39,6 +197,9 @@ public class StrokeRenderer {
     }
     
     private float getStrokeWidth(Object stroke) {
+        if (stroke instanceof IStroke) {
+            return ((IStroke) stroke).getStrokeWidth();
+        }
         try {
             return (Float) stroke.getClass().getMethod("getStrokeWidth").invoke(stroke);
         } catch (Exception e) {
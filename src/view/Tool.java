@@ -0,0 +1,19 @@
+package view;
+
+public enum Tool {
+    DRAW("Draw"),
+    MARQUEE("Select"),
+    LASSO("Lasso"),
+    ERASER("Erase"),
+    CROP("Crop");
+
+    private final String label;
+
+    Tool(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,275 @@
+package view;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import javax.imageio.ImageIO;
+import interfaces.IAnnotation;
+import interfaces.IStroke;
+import utils.Constants;
+import utils.FileUtils;
+import utils.FontMetricsService;
+import utils.TextUtils;
+import utils.WordWrapUtils;
+
+public class VectorExporter {
+    public enum PhotoMode { NONE, LINKED, EMBEDDED }
+
+    private final WordWrapUtils wordWrapper = new WordWrapUtils();
+    private final TextUtils textRenderer = new TextUtils();
+    private final FontMetricsService.Metrics metrics =
+            FontMetricsService.shared().metricsFor(TextUtils.createBoldFont());
+    private final double tolerance;
+
+    public VectorExporter() {
+        this(Constants.VECTOR_SIMPLIFY_TOLERANCE);
+    }
+
+    public VectorExporter(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    public static boolean isVectorFormat(File file) {
+        return file.getName().toLowerCase(Locale.ROOT).endsWith(".svg");
+    }
+
+    // Each element is written as soon as it is produced, so memory stays flat however many
+    // strokes the document holds.
+    public void export(BufferedImage image, File photoFile, Dimension size, List<?> strokes, List<?> annotations,
+                       PhotoMode mode, File target) throws IOException {
+        // The previous file is only replaced once the new one is complete.
+        File temporary = FileUtils.temporaryFor(target);
+        boolean written = false;
+        try {
+            try (OutputStream stream = new BufferedOutputStream(new FileOutputStream(temporary));
+                 Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8))) {
+                out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+                out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\""
+                        + " width=\"" + size.width + "\" height=\"" + size.height
+                        + "\" viewBox=\"0 0 " + size.width + ' ' + size.height + "\">\n");
+                writePhoto(out, stream, image, photoFile, size, mode);
+                writeStrokes(out, strokes);
+                writeAnnotations(out, annotations, size.width);
+                out.write("</svg>\n");
+            }
+            written = true;
+        } finally {
+            if (!written) {
+                temporary.delete();
+            }
+        }
+        FileUtils.replace(temporary, target);
+    }
+
+    private void writePhoto(Writer out, OutputStream stream, BufferedImage image, File photoFile, Dimension size,
+                            PhotoMode mode) throws IOException {
+        if (mode == PhotoMode.LINKED && photoFile != null) {
+            out.write("<image x=\"0\" y=\"0\" width=\"" + size.width + "\" height=\"" + size.height
+                    + "\" xlink:href=\"" + escape(photoFile.toURI().toString()) + "\"/>\n");
+        } else if (mode == PhotoMode.EMBEDDED && image != null) {
+            String format = image.getColorModel().hasAlpha() ? "png" : "jpeg";
+            out.write("<image x=\"0\" y=\"0\" width=\"" + size.width + "\" height=\"" + size.height
+                    + "\" xlink:href=\"data:image/" + format + ";base64,");
+            out.flush();
+            // The encoder writes straight through to the file; the shield keeps it from closing it.
+            OutputStream shield = new FilterOutputStream(stream) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    stream.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+            try (OutputStream base64 = Base64.getEncoder().wrap(shield)) {
+                if (!ImageIO.write(image, format, base64)) {
+                    throw new IOException("No " + format + " writer available");
+                }
+            }
+            out.write("\"/>\n");
+        }
+    }
+
+    private void writeStrokes(Writer out, List<?> strokes) throws IOException {
+        String openStyle = null;
+        StringBuilder path = new StringBuilder();
+        for (Object object : strokes) {
+            if (!(object instanceof IStroke)) {
+                continue;
+            }
+            IStroke stroke = (IStroke) object;
+            int[] coordinates = stroke.getCoordinates();
+            if (coordinates.length < 4) {
+                continue;
+            }
+            String style = strokeStyle(stroke.getColor(), stroke.getStrokeWidth());
+            if (!style.equals(openStyle)) {
+                if (openStyle != null) {
+                    out.write("</g>\n");
+                }
+                out.write("<g fill=\"none\" stroke-linecap=\"round\" stroke-linejoin=\"round\" " + style + ">\n");
+                openStyle = style;
+            }
+            path.setLength(0);
+            appendPathData(path, coordinates, simplify(coordinates));
+            out.write("<path d=\"");
+            out.append(path);
+            out.write("\"/>\n");
+        }
+        if (openStyle != null) {
+            out.write("</g>\n");
+        }
+    }
+
+    private void writeAnnotations(Writer out, List<?> annotations, int photoWidth) throws IOException {
+        boolean opened = false;
+        for (Object object : annotations) {
+            if (!(object instanceof IAnnotation) || ((IAnnotation) object).isEmpty()) {
+                continue;
+            }
+            IAnnotation annotation = (IAnnotation) object;
+            Point position = annotation.getPosition();
+            int maxWidth = textRenderer.calculateMaxWidth(photoWidth, position.x);
+            if (maxWidth <= 0) {
+                continue;
+            }
+            if (!opened) {
+                out.write("<g font-family=\"" + Constants.FONT_NAME + "\" font-weight=\"bold\" font-size=\""
+                        + Constants.FONT_SIZE_BOLD + "\" xml:space=\"preserve\">\n");
+                opened = true;
+            }
+            CharSequence text = annotation.getTextSequence();
+            String fill = colorAttributes("fill", annotation.getColor());
+            IOException[] failure = new IOException[1];
+            // Lines come from the same layout as on-screen drawing, so wrapping matches exactly.
+            wordWrapper.layout(metrics, text, position.y, maxWidth, (start, end, lineY) -> {
+                if (failure[0] != null) {
+                    return;
+                }
+                try {
+                    out.write("<text x=\"" + position.x + "\" y=\"" + lineY + "\" " + fill + ">");
+                    out.write(escape(text.subSequence(start, end)));
+                    out.write("</text>\n");
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+        if (opened) {
+            out.write("</g>\n");
+        }
+    }
+
+    // Ramer-Douglas-Peucker with an explicit stack; returns which points survive.
+    private boolean[] simplify(int[] coordinates) {
+        int count = coordinates.length / 2;
+        boolean[] keep = new boolean[count];
+        keep[0] = true;
+        keep[count - 1] = true;
+        if (tolerance <= 0) {
+            Arrays.fill(keep, true);
+            return keep;
+        }
+        double toleranceSquared = tolerance * tolerance;
+        Deque<int[]> ranges = new ArrayDeque<>();
+        ranges.push(new int[] {0, count - 1});
+        while (!ranges.isEmpty()) {
+            int[] range = ranges.pop();
+            int first = range[0];
+            int last = range[1];
+            double worst = -1;
+            int worstIndex = -1;
+            for (int i = first + 1; i < last; i++) {
+                double distance = Line2D.ptSegDistSq(
+                        coordinates[first * 2], coordinates[first * 2 + 1],
+                        coordinates[last * 2], coordinates[last * 2 + 1],
+                        coordinates[i * 2], coordinates[i * 2 + 1]);
+                if (distance > worst) {
+                    worst = distance;
+                    worstIndex = i;
+                }
+            }
+            if (worst > toleranceSquared) {
+                keep[worstIndex] = true;
+                ranges.push(new int[] {first, worstIndex});
+                ranges.push(new int[] {worstIndex, last});
+            }
+        }
+        return keep;
+    }
+
+    private static void appendPathData(StringBuilder path, int[] coordinates, boolean[] keep) {
+        int previousX = coordinates[0];
+        int previousY = coordinates[1];
+        path.append('M').append(previousX).append(' ').append(previousY).append('l');
+        for (int i = 1; i < keep.length; i++) {
+            if (!keep[i]) {
+                continue;
+            }
+            int x = coordinates[i * 2];
+            int y = coordinates[i * 2 + 1];
+            path.append(' ').append(x - previousX).append(' ').append(y - previousY);
+            previousX = x;
+            previousY = y;
+        }
+    }
+
+    private static String strokeStyle(Color color, float width) {
+        return colorAttributes("stroke", color) + " stroke-width=\"" + number(width) + "\"";
+    }
+
+    private static String colorAttributes(String attribute, Color color) {
+        String value = attribute + "=\"" + String.format(Locale.ROOT, "#%06x", color.getRGB() & 0xFFFFFF) + "\"";
+        if (color.getAlpha() != 255) {
+            value += " " + attribute + "-opacity=\"" + number(color.getAlpha() / 255f) + "\"";
+        }
+        return value;
+    }
+
+    private static String number(float value) {
+        return value == (int) value ? Integer.toString((int) value) : String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String escape(CharSequence text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<': escaped.append("&lt;"); break;
+                case '>': escaped.append("&gt;"); break;
+                case '&': escaped.append("&amp;"); break;
+                case '"': escaped.append("&quot;"); break;
+                default:
+                    if (c < 0x20 && c != '\t') {
+                        escaped.append(' ');
+                    } else {
+                        escaped.append(c);
+                    }
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,44 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class EraserTest {
+    @Test
+    void aFastDragErasesWhatItCrossesBetweenEvents() {
+        Stroke line = new Stroke(Color.RED, 2f);
+        line.addPoint(0, 50);
+        line.addPoint(50, 50);
+        line.addPoint(100, 50);
+        line.compact();
+        Eraser eraser = new Eraser(List.of(line), 5);
+
+        // Neither event lands near the line; only the path between them crosses it.
+        assertNull(eraser.eraseAt(20, 0));
+        assertNotNull(eraser.eraseAt(30, 100));
+        List<Stroke> pieces = eraser.getStrokes();
+        assertEquals(1, pieces.size());
+        assertEquals(List.of(new Point(50, 50), new Point(100, 50)), pieces.get(0).getPoints());
+    }
+
+    @Test
+    void aMovedStrokeIsErasedWhereItIsDrawn() {
+        Stroke line = new Stroke(Color.RED, 2f);
+        line.addPoint(0, 0);
+        line.addPoint(0, 100);
+        line.moveBy(200, 0);
+        Eraser eraser = new Eraser(List.of(line), 3);
+
+        assertNull(eraser.eraseAt(100, 50));
+        assertFalse(eraser.hasChanges());
+        assertNotNull(eraser.eraseAt(300, 50));
+        assertEquals(List.of(), eraser.getStrokes());
+    }
+}
@@ -0,0 +1,74 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class GapBufferTest {
+    @Test
+    void randomEditsMatchAStringBuilder() {
+        Random random = new Random(38);
+        GapBuffer buffer = new GapBuffer("seed text");
+        StringBuilder expected = new StringBuilder("seed text");
+        int caret = buffer.getCaret();
+        for (int step = 0; step < 20000; step++) {
+            int action = random.nextInt(10);
+            if (action < 5) {
+                char c = (char) ('a' + random.nextInt(26));
+                buffer.insert(c);
+                expected.insert(caret++, c);
+            } else if (action < 7) {
+                if (buffer.deleteBefore()) {
+                    expected.deleteCharAt(--caret);
+                }
+            } else if (action < 8) {
+                if (buffer.deleteAfter()) {
+                    expected.deleteCharAt(caret);
+                }
+            } else {
+                caret = random.nextInt(expected.length() + 1);
+                buffer.setCaret(caret);
+            }
+            assertEquals(caret, buffer.getCaret());
+            assertEquals(expected.length(), buffer.length());
+            if (step % 97 == 0) {
+                assertEquals(expected.toString(), buffer.toString());
+                int start = random.nextInt(expected.length() + 1);
+                int end = start + random.nextInt(expected.length() - start + 1);
+                assertEquals(expected.substring(start, end), buffer.subSequence(start, end).toString());
+                for (int i = 0; i < expected.length(); i++) {
+                    assertEquals(expected.charAt(i), buffer.charAt(i));
+                }
+            }
+        }
+        assertEquals(expected.toString(), buffer.toString());
+    }
+
+    @Test
+    void editsAtTheEndsAreRejected() {
+        GapBuffer buffer = new GapBuffer("ab");
+        assertFalse(buffer.deleteAfter());
+        buffer.setCaret(-5);
+        assertEquals(0, buffer.getCaret());
+        assertFalse(buffer.deleteBefore());
+        buffer.setCaret(99);
+        assertEquals(2, buffer.getCaret());
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.charAt(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.subSequence(1, 3));
+    }
+
+    @Test
+    void modCountChangesOnEveryEdit() {
+        GapBuffer buffer = new GapBuffer();
+        int before = buffer.getModCount();
+        buffer.insert('x');
+        buffer.setCaret(0);
+        int afterInsert = buffer.getModCount();
+        buffer.deleteAfter();
+        assertEquals(before + 1, afterInsert);
+        assertEquals(afterInsert + 1, buffer.getModCount());
+    }
+}
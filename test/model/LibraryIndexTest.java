@@ -0,0 +1,99 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LibraryIndexTest {
+    @TempDir
+    File directory;
+
+    @Test
+    void savedIndexReloadsEveryEntry() throws IOException {
+        File photos = new File(directory, "photos");
+        File nested = new File(photos, "2024");
+        nested.mkdirs();
+        writeImage(new File(photos, "a.png"), 40, 30);
+        writeImage(new File(nested, "b.png"), 12, 90);
+        writeImage(new File(nested, "c.jpg"), 64, 48);
+        Files.writeString(new File(photos, "notes.txt").toPath(), "not a photo");
+
+        File file = new File(directory, LibraryIndex.FILE_NAME);
+        LibraryIndex index = new LibraryIndex(file);
+        LibraryIndex.ScanResult result = addRoot(index, photos);
+        assertEquals(3, result.added.size());
+        assertEquals(3, index.size());
+
+        LibraryIndex reloaded = new LibraryIndex(file);
+        assertEquals(List.of(photos.getAbsolutePath()), reloaded.getRoots());
+        assertEquals(3, reloaded.size());
+        for (LibraryIndex.Entry entry : index.getEntries()) {
+            LibraryIndex.Entry loaded = reloaded.get(entry.path);
+            assertNotNull(loaded, entry.path);
+            assertEquals(entry.size, loaded.size);
+            assertEquals(entry.modified, loaded.modified);
+            assertEquals(entry.width, loaded.width);
+            assertEquals(entry.height, loaded.height);
+            assertEquals(entry.format, loaded.format);
+        }
+        LibraryIndex.Entry b = reloaded.get(new File(nested, "b.png").getPath());
+        assertEquals(12, b.width);
+        assertEquals(90, b.height);
+        assertTrue(reloaded.rescan().isEmpty(), "an unchanged tree rescans to nothing");
+    }
+
+    @Test
+    void removesOnlyWhatAListingProvesGone() throws IOException {
+        File photos = new File(directory, "photos");
+        File nested = new File(photos, "trip");
+        nested.mkdirs();
+        File kept = new File(photos, "kept.png");
+        File deleted = new File(photos, "deleted.png");
+        File inNested = new File(nested, "inside.png");
+        writeImage(kept, 8, 8);
+        writeImage(deleted, 8, 8);
+        writeImage(inNested, 8, 8);
+        File file = new File(directory, LibraryIndex.FILE_NAME);
+        LibraryIndex index = new LibraryIndex(file);
+        addRoot(index, photos);
+
+        deleted.delete();
+        inNested.delete();
+        nested.delete();
+        LibraryIndex.ScanResult result = index.rescan();
+        assertEquals(2, result.removed.size());
+        assertNull(index.get(deleted.getPath()));
+        assertNull(index.get(inNested.getPath()));
+
+        // A root that is missing, e.g. an unmounted drive, keeps its entries.
+        File moved = new File(directory, "moved");
+        assertTrue(photos.renameTo(moved));
+        assertTrue(index.rescan().isEmpty());
+        assertNotNull(new LibraryIndex(file).get(kept.getPath()));
+    }
+
+    // Adding a root starts a background scan; waiting for it keeps it out of the later rescans.
+    private static LibraryIndex.ScanResult addRoot(LibraryIndex index, File root) {
+        CompletableFuture<LibraryIndex.ScanResult> scanned = new CompletableFuture<>();
+        index.addListener(scanned::complete);
+        index.addRoot(root);
+        return scanned.orTimeout(30, TimeUnit.SECONDS).join();
+    }
+
+    private static void writeImage(File file, int width, int height) throws IOException {
+        String format = file.getName().endsWith(".jpg") ? "jpeg" : "png";
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), format, file);
+    }
+}
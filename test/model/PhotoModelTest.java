@@ -0,0 +1,117 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import utils.RasterTransform;
+
+class PhotoModelTest {
+    @TempDir
+    File directory;
+
+    @Test
+    void savingACropKeepsTheSidecarInFileSpace() throws IOException {
+        File photo = photoWithSidecar();
+        Set<String> original = records(photo);
+        PhotoModel model = new PhotoModel();
+        model.loadImage(photo);
+
+        assertTrue(model.crop(new Rectangle(10, 5, 40, 30)));
+        assertEquals(1, model.getStrokes().size());
+        assertEquals(1, model.getAnnotations().size());
+        assertEquals(new Point(20, 15), model.getAnnotations().get(0).getPosition());
+        model.saveAnnotations();
+        assertEquals(original, records(photo));
+
+        // A crop of a crop still saves against the photo, and the cut-away objects come back.
+        assertTrue(model.crop(new Rectangle(5, 5, 200, 200)));
+        model.saveAnnotations();
+        assertEquals(original, records(photo));
+        model.loadImage(photo);
+        assertEquals(2, model.getStrokes().size());
+        assertEquals(2, model.getAnnotations().size());
+    }
+
+    @Test
+    void savingAfterMirrorsAndRotationsMapsBackToTheFile() throws IOException {
+        File photo = photoWithSidecar();
+        Set<String> original = records(photo);
+        PhotoModel model = new PhotoModel();
+        model.loadImage(photo);
+        Point before = model.getAnnotations().get(0).getPosition();
+
+        for (RasterTransform transform : RasterTransform.values()) {
+            transformed(model, transform);
+            model.saveAnnotations();
+            assertEquals(original, records(photo), transform.name());
+        }
+        assertTrue(model.crop(new Rectangle(3, 4, 60, 70)));
+        transformed(model, RasterTransform.ROTATE_270);
+        model.saveAnnotations();
+        assertEquals(original, records(photo));
+
+        // A mirror followed by three quarter turns, 90 + 180 + 270, flips the photo upside down.
+        model.loadImage(photo);
+        for (RasterTransform transform : RasterTransform.values()) {
+            transformed(model, transform);
+        }
+        assertEquals(new Point(before.x, 79 - before.y), model.getAnnotations().get(0).getPosition());
+    }
+
+    private static void transformed(PhotoModel model, RasterTransform transform) {
+        Dimension size = model.getImageDimensions();
+        BufferedImage image = transform.swapsDimensions()
+                ? new BufferedImage(size.height, size.width, BufferedImage.TYPE_INT_RGB)
+                : new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+        model.applyTransform(transform, image, null);
+    }
+
+    private File photoWithSidecar() throws IOException {
+        File photo = new File(directory, "photo.png");
+        ImageIO.write(new BufferedImage(100, 80, BufferedImage.TYPE_INT_RGB), "png", photo);
+        Stroke inside = new Stroke(Color.RED, 3f);
+        inside.addPoint(15, 10);
+        inside.addPoint(30, 25);
+        inside.addPoint(45, 12);
+        Stroke outside = new Stroke(Color.BLUE, 2f);
+        outside.addPoint(80, 60);
+        outside.addPoint(95, 75);
+        Annotation kept = new Annotation(new Point(30, 20));
+        kept.setText("kept");
+        Annotation cut = new Annotation(new Point(90, 10));
+        cut.setText("cut");
+        new AnnotationSidecar(List.of(inside, outside), List.of(kept, cut))
+                .write(AnnotationSidecar.sidecarFor(photo));
+        return photo;
+    }
+
+    private static Set<String> records(File photo) throws IOException {
+        AnnotationSidecar sidecar = AnnotationSidecar.readFor(photo);
+        Set<String> records = new TreeSet<>();
+        for (Stroke stroke : sidecar.getStrokes()) {
+            List<String> points = new ArrayList<>();
+            for (Point point : stroke.getPoints()) {
+                points.add(point.x + "," + point.y);
+            }
+            records.add(stroke.getColor() + " " + stroke.getStrokeWidth() + " " + points);
+        }
+        for (Annotation annotation : sidecar.getAnnotations()) {
+            records.add(annotation.getText() + " " + annotation.getPosition());
+        }
+        return records;
+    }
+}
@@ -0,0 +1,85 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class StrokeArenaTest {
+    @Test
+    void roundTripsVarintBoundaries() {
+        StrokeArena arena = new StrokeArena();
+        int[] values = {0, 1, -1, 63, -64, 64, -65, 8191, -8192, 8192, 1 << 20, -(1 << 20),
+                Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, 0};
+        // Each value is used as x and its negation as y, so every delta appears with both signs.
+        int[] coordinates = new int[values.length * 2];
+        for (int i = 0; i < values.length; i++) {
+            coordinates[i * 2] = values[i];
+            coordinates[i * 2 + 1] = -values[i];
+        }
+        Object owner = new Object();
+        StrokeArena.Block block = arena.store(owner, coordinates, values.length);
+        assertArrayEquals(coordinates, arena.decode(block));
+    }
+
+    @Test
+    void smallDeltasTakeOneBytePerAxis() {
+        StrokeArena arena = new StrokeArena();
+        int count = 1000;
+        int[] coordinates = new int[count * 2];
+        Random random = new Random(7);
+        coordinates[0] = 20;
+        coordinates[1] = 30;
+        for (int i = 1; i < count; i++) {
+            coordinates[i * 2] = coordinates[i * 2 - 2] + random.nextInt(127) - 63;
+            coordinates[i * 2 + 1] = coordinates[i * 2 - 1] + random.nextInt(127) - 63;
+        }
+        StrokeArena.Block block = arena.store(new Object(), coordinates, count);
+        assertEquals(count * 2, block.getLength());
+        assertArrayEquals(coordinates, arena.decode(block));
+    }
+
+    @Test
+    void compactionKeepsLiveBlocksIntact() {
+        StrokeArena arena = new StrokeArena();
+        Random random = new Random(11);
+        List<Object> owners = new ArrayList<>();
+        List<StrokeArena.Block> blocks = new ArrayList<>();
+        List<int[]> stored = new ArrayList<>();
+        // Enough data to outgrow the initial capacity several times, with every other block released.
+        for (int i = 0; i < 3000; i++) {
+            int count = 1 + random.nextInt(200);
+            int[] coordinates = randomCoordinates(random, count);
+            Object owner = new Object();
+            StrokeArena.Block block = arena.store(owner, coordinates, count);
+            if (i % 2 == 1) {
+                arena.release(block);
+                continue;
+            }
+            owners.add(owner);
+            blocks.add(block);
+            stored.add(coordinates);
+        }
+        long liveBytes = 0;
+        for (int i = 0; i < blocks.size(); i++) {
+            assertArrayEquals(stored.get(i), arena.decode(blocks.get(i)));
+            liveBytes += blocks.get(i).getLength();
+        }
+        assertTrue(arena.size() < liveBytes * 2, "released blocks were never reclaimed");
+        // Blocks whose owner was collected are dropped too, so the owners must outlive the checks.
+        Reference.reachabilityFence(owners);
+    }
+
+    private static int[] randomCoordinates(Random random, int count) {
+        int[] coordinates = new int[count * 2];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = random.nextInt(4) == 0 ? random.nextInt() : random.nextInt(4000) - 2000;
+        }
+        return coordinates;
+    }
+}
@@ -0,0 +1,46 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class StrokeCompactionTest {
+    @Test
+    void compactedStrokesMatchPlainOnes() {
+        Random random = new Random(43);
+        for (int n = 0; n < 2000; n++) {
+            Stroke plain = new Stroke(Color.RED, 3f);
+            Stroke compacted = new Stroke(Color.RED, 3f);
+            int count = 1 + random.nextInt(300);
+            int x = random.nextInt(5000) - 1000;
+            int y = random.nextInt(5000) - 1000;
+            for (int i = 0; i < count; i++) {
+                // Mostly freehand-sized steps, with the odd jump that needs a multi-byte varint.
+                x += random.nextInt(10) == 0 ? random.nextInt(20000) - 10000 : random.nextInt(31) - 15;
+                y += random.nextInt(10) == 0 ? random.nextInt(20000) - 10000 : random.nextInt(31) - 15;
+                plain.addPoint(x, y);
+                compacted.addPoint(x, y);
+            }
+            compacted.compact();
+            assertTrue(compacted.isCompacted());
+
+            int dx = random.nextInt(200) - 100;
+            int dy = random.nextInt(200) - 100;
+            plain.moveBy(dx, dy);
+            compacted.moveBy(dx, dy);
+
+            assertEquals(plain.getPointCount(), compacted.getPointCount());
+            assertArrayEquals(plain.getCoordinates(), compacted.getCoordinates());
+            assertEquals(plain.getBounds(), compacted.getBounds());
+            assertEquals(plain.getCenter(), compacted.getCenter());
+            assertEquals(plain.getPoints(), compacted.getPoints());
+            assertTrue(compacted.isCompacted(), "reading the points must not decode the stroke");
+            assertEquals(dx, plain.getTranslateX(), "reading the points must not apply the translation");
+            assertEquals(dy, plain.getTranslateY());
+        }
+    }
+}
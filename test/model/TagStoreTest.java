@@ -0,0 +1,80 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TagStoreTest {
+    @TempDir
+    File directory;
+
+    @Test
+    void savedStoreReloadsIdsTagsAndRetiredPhotos() {
+        File file = new File(directory, TagStore.FILE_NAME);
+        TagStore store = new TagStore(file);
+        int beach = store.idFor(new File(directory, "beach.jpg"));
+        int dinner = store.idFor(new File(directory, "dinner.jpg"));
+        int gone = store.idFor(new File(directory, "gone.jpg"));
+        store.setTag(beach, "People", true);
+        store.setTag(dinner, "People", true);
+        store.setTag(dinner, "Foods", true);
+        store.setTag(gone, "Foods", true);
+        store.retire(new File(directory, "gone.jpg"));
+        store.flush();
+
+        TagStore reloaded = new TagStore(file);
+        assertEquals(3, reloaded.size());
+        assertEquals(dinner, reloaded.idFor(new File(directory, "dinner.jpg")));
+        assertEquals(new File(directory, "gone.jpg").getAbsolutePath(), reloaded.pathOf(gone));
+        assertEquals(Set.of("Foods", "People"), reloaded.tagsOf(dinner));
+        assertEquals(Set.of(), reloaded.tagsOf(gone));
+        assertArrayEquals(new int[] {dinner}, reloaded.query(List.of("People", "Foods"), TagStore.Match.ALL).toArray());
+        assertArrayEquals(new int[] {beach, dinner},
+                reloaded.query(List.of("People", "Foods"), TagStore.Match.ANY).toArray());
+        // Retired photos stay out of every result, including "none of these".
+        assertArrayEquals(new int[] {}, reloaded.query(List.of("People"), TagStore.Match.NONE).toArray());
+        assertArrayEquals(new int[] {beach, dinner}, reloaded.query(List.of(), TagStore.Match.ANY).toArray());
+    }
+
+    @Test
+    void readsVersionOneFilesAsAllPhotosLive() throws IOException {
+        File file = new File(directory, TagStore.FILE_NAME);
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(0x50565447);
+            out.writeShort(1);
+            out.writeInt(2);
+            out.writeUTF("/photos/a.jpg");
+            out.writeUTF("/photos/b.jpg");
+            out.writeInt(1);
+            out.writeUTF("People");
+            // One array container, its cardinality stored minus one, holding id 1.
+            out.writeInt(1);
+            out.writeChar(0);
+            out.writeByte(0);
+            out.writeShort(0);
+            out.writeChar(1);
+        }
+        TagStore store = new TagStore(file);
+        assertEquals(2, store.size());
+        assertEquals("/photos/b.jpg", store.pathOf(1));
+        assertEquals(Set.of("People"), store.tagsOf(1));
+        assertArrayEquals(new int[] {0, 1}, store.query(List.of(), TagStore.Match.ANY).toArray());
+    }
+
+    @Test
+    void unreadableFileStartsEmpty() throws IOException {
+        File file = new File(directory, TagStore.FILE_NAME);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[] {1, 2, 3});
+        }
+        assertEquals(0, new TagStore(file).size());
+    }
+}
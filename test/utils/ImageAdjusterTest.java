@@ -0,0 +1,54 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+class ImageAdjusterTest {
+    private static final ImageAdjustments[] ADJUSTMENTS = {
+            new ImageAdjustments(0, 0, 1.0, 0, 255),
+            new ImageAdjustments(35, -20, 1.0, 0, 255),
+            new ImageAdjustments(-60, 80, 0.45, 12, 240),
+            new ImageAdjustments(10, 10, 2.2, 100, 101),
+    };
+
+    @Test
+    void matchesANaivePerPixelLookup() {
+        Random random = new Random(45);
+        ImageAdjuster adjuster = new ImageAdjuster(new ForkJoinPool(3));
+        int[] types = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR,
+                BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_GRAY};
+        for (int type : types) {
+            // Tall enough to be split into several bands, with a ragged last one.
+            BufferedImage source = new BufferedImage(97, 301, type);
+            for (int y = 0; y < source.getHeight(); y++) {
+                for (int x = 0; x < source.getWidth(); x++) {
+                    source.setRGB(x, y, random.nextInt());
+                }
+            }
+            for (ImageAdjustments adjustments : ADJUSTMENTS) {
+                BufferedImage adjusted = adjuster.apply(source, adjustments);
+                int[] table = adjustments.lookupTable();
+                for (int y = 0; y < source.getHeight(); y++) {
+                    for (int x = 0; x < source.getWidth(); x++) {
+                        int pixel = source.getRGB(x, y);
+                        int expected = (pixel & 0xFF000000) | table[(pixel >>> 16) & 0xFF] << 16
+                                | table[(pixel >>> 8) & 0xFF] << 8 | table[pixel & 0xFF];
+                        assertEquals(expected, adjusted.getRGB(x, y), "type " + type + " at " + x + "," + y);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void identityTableLeavesValuesAlone() {
+        int[] table = ImageAdjustments.IDENTITY.lookupTable();
+        for (int i = 0; i < 256; i++) {
+            assertEquals(i, table[i]);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class RoaringBitmapTest {
+    @Test
+    void tracksAddsAndRemovesAcrossContainerKinds() {
+        Random random = new Random(32);
+        RoaringBitmap bitmap = new RoaringBitmap();
+        Set<Integer> expected = new HashSet<>();
+        // Chunk 0 goes dense enough to become a bitmap and is then thinned back out; chunk 3 stays sparse.
+        for (int i = 0; i < 9000; i++) {
+            int value = random.nextInt(1 << 16);
+            bitmap.add(value);
+            expected.add(value);
+        }
+        for (int i = 0; i < 300; i++) {
+            int value = (3 << 16) + random.nextInt(1 << 16);
+            bitmap.add(value);
+            expected.add(value);
+        }
+        bitmap.add(-1);
+        expected.add(-1);
+        assertMatches(expected, bitmap);
+
+        for (int i = 0; i < 60000; i++) {
+            int value = random.nextInt(1 << 16);
+            bitmap.remove(value);
+            expected.remove(value);
+        }
+        assertMatches(expected, bitmap);
+        for (int value : expected.toArray(new Integer[0])) {
+            bitmap.remove(value);
+            expected.remove(value);
+        }
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    void setOperationsMatchHashSets() {
+        Random random = new Random(320);
+        for (int round = 0; round < 50; round++) {
+            Set<Integer> left = new HashSet<>();
+            Set<Integer> right = new HashSet<>();
+            RoaringBitmap a = randomBitmap(random, left);
+            RoaringBitmap b = randomBitmap(random, right);
+
+            Set<Integer> and = new HashSet<>(left);
+            and.retainAll(right);
+            Set<Integer> or = new HashSet<>(left);
+            or.addAll(right);
+            Set<Integer> andNot = new HashSet<>(left);
+            andNot.removeAll(right);
+
+            assertMatches(and, RoaringBitmap.and(a, b));
+            assertMatches(or, RoaringBitmap.or(a, b));
+            assertMatches(andNot, RoaringBitmap.andNot(a, b));
+            assertMatches(left, a);
+            assertMatches(right, b);
+
+            RoaringBitmap union = a.copy();
+            union.addAll(b);
+            assertMatches(or, union);
+            assertMatches(left, a);
+        }
+    }
+
+    @Test
+    void serializedFormRoundTrips() throws IOException {
+        Random random = new Random(3200);
+        for (int round = 0; round < 20; round++) {
+            Set<Integer> values = new HashSet<>();
+            RoaringBitmap bitmap = randomBitmap(random, values);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                bitmap.write(out);
+                out.writeInt(0x5E7715E7);
+            }
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                RoaringBitmap read = RoaringBitmap.read(in);
+                assertArrayEquals(bitmap.toArray(), read.toArray());
+                assertEquals(0x5E7715E7, in.readInt(), "read consumed the wrong number of bytes");
+            }
+        }
+    }
+
+    // Mixes sparse chunks with dense ones so both container kinds meet in every operation.
+    private static RoaringBitmap randomBitmap(Random random, Set<Integer> values) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int chunk = 0; chunk < 6; chunk++) {
+            if (random.nextBoolean()) {
+                continue;
+            }
+            int count = random.nextBoolean() ? random.nextInt(100) : 3000 + random.nextInt(20000);
+            for (int i = 0; i < count; i++) {
+                int value = (chunk << 16) | random.nextInt(1 << 16);
+                bitmap.add(value);
+                values.add(value);
+            }
+        }
+        return bitmap;
+    }
+
+    private static void assertMatches(Set<Integer> expected, RoaringBitmap bitmap) {
+        int[] values = bitmap.toArray();
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).sorted().toArray(), sorted);
+        assertEquals(expected.size(), bitmap.cardinality());
+        assertEquals(expected.isEmpty(), bitmap.isEmpty());
+        for (int value : values) {
+            assertTrue(bitmap.contains(value));
+        }
+    }
+}